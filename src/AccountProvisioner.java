@@ -0,0 +1,197 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class AccountProvisioner {
+    private static final int CHUNK_LINES = 65_536;
+    private static final int MAX_REPORTED_REJECTIONS = 20;
+
+    private final UserManager userManager;
+
+    public AccountProvisioner(UserManager userManager) {
+        this.userManager = userManager;
+    }
+
+    public static class Report {
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> sampleRejections = new ArrayList<>();
+        private long elapsedNanos;
+
+        void reject(long lineNumber, String reason) {
+            rejected.incrementAndGet();
+            synchronized (sampleRejections) {
+                if (sampleRejections.size() < MAX_REPORTED_REJECTIONS) {
+                    sampleRejections.add((lineNumber > 0) ? "line " + lineNumber + ": " + reason : reason);
+                }
+            }
+        }
+
+        public long getRowsRead() {
+            return rowsRead.get();
+        }
+
+        public long getAccepted() {
+            return accepted.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public List<String> getSampleRejections() {
+            return sampleRejections;
+        }
+
+        public double getRowsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : rowsRead.get() / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        public void print() {
+            System.out.println("\n--- Account Provisioning Report ---");
+            System.out.printf("Rows read: %d, accepted: %d, rejected: %d%n", getRowsRead(), getAccepted(), getRejected());
+            System.out.printf("Elapsed: %.2f s (%.0f rows/s)%n", elapsedNanos / 1_000_000_000.0, getRowsPerSecond());
+            for (String rejection : sampleRejections) {
+                System.out.println("  - " + rejection);
+            }
+            if (getRejected() > sampleRejections.size()) {
+                System.out.println("  ... " + (getRejected() - sampleRejections.size()) + " more rejected row(s).");
+            }
+        }
+    }
+
+    /**
+     * One non-blank, non-comment line: either a parsed account or the reason it was rejected.
+     */
+    private static class ParsedRow {
+        final long lineNumber;
+        final EncodedAccount account;
+        final String rejection;
+
+        ParsedRow(long lineNumber, EncodedAccount account, String rejection) {
+            this.lineNumber = lineNumber;
+            this.account = account;
+            this.rejection = rejection;
+        }
+    }
+
+    /**
+     * Lines are parsed in parallel, but rejections and duplicate detection run afterwards in file
+     * order, so the first occurrence of a username always wins and the report is the same on
+     * every run.
+     */
+    public Report provision(Path accountFile) throws IOException {
+        Report report = new Report();
+        Set<String> seenUsernames = new HashSet<>();
+        List<EncodedAccount> accounts = new ArrayList<>();
+        long[] lineNumbers = new long[CHUNK_LINES];
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(accountFile, StandardCharsets.UTF_8)) {
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            long firstLineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_LINES) {
+                    lineNumbers = accept(parseChunk(chunk, firstLineNumber, report), seenUsernames, accounts, lineNumbers, report);
+                    firstLineNumber += chunk.size();
+                    chunk.clear();
+                }
+            }
+            lineNumbers = accept(parseChunk(chunk, firstLineNumber, report), seenUsernames, accounts, lineNumbers, report);
+        }
+
+        int[] ids = userManager.provisionAccounts(accounts);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) {
+                report.accepted.incrementAndGet();
+            } else {
+                report.reject(lineNumbers[i], "username '" + accounts.get(i).getUsername() + "' already exists");
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static long[] accept(List<ParsedRow> rows, Set<String> seenUsernames, List<EncodedAccount> accounts, long[] lineNumbers,
+                                 Report report) {
+        for (ParsedRow row : rows) {
+            if (row.rejection != null) {
+                report.reject(row.lineNumber, row.rejection);
+            } else if (!seenUsernames.add(row.account.getUsername())) {
+                report.reject(row.lineNumber, "duplicate username '" + row.account.getUsername() + "' in file");
+            } else {
+                if (accounts.size() == lineNumbers.length) {
+                    lineNumbers = Arrays.copyOf(lineNumbers, lineNumbers.length * 2);
+                }
+                lineNumbers[accounts.size()] = row.lineNumber;
+                accounts.add(row.account);
+            }
+        }
+        return lineNumbers;
+    }
+
+    private List<ParsedRow> parseChunk(List<String> chunk, long firstLineNumber, Report report) {
+        return IntStream.range(0, chunk.size())
+                .parallel()
+                .mapToObj(i -> parseLine(chunk.get(i), firstLineNumber + i, report))
+                .filter(row -> row != null)
+                .collect(Collectors.toList());
+    }
+
+    private static ParsedRow rejectRow(long lineNumber, String reason) {
+        return new ParsedRow(lineNumber, null, reason);
+    }
+
+    private ParsedRow parseLine(String line, long lineNumber, Report report) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        report.rowsRead.incrementAndGet();
+
+        String[] fields = trimmed.split(",", -1);
+        if (fields.length < 3 || fields.length > 4) {
+            return rejectRow(lineNumber, "expected username,password,role[,discountRate]");
+        }
+        String username = fields[0].trim();
+        String password = fields[1].trim();
+        if (username.isEmpty() || password.isEmpty()) {
+            return rejectRow(lineNumber, "username and password are required");
+        }
+
+        UserRole role;
+        try {
+            role = UserRole.fromString(fields[2].trim());
+        } catch (IllegalArgumentException e) {
+            return rejectRow(lineNumber, "invalid role '" + fields[2].trim() + "'");
+        }
+        double discountRate = 0.0;
+        if (role == UserRole.PREMIUM_CUSTOMER) {
+            discountRate = 0.1;
+            if (fields.length == 4 && !fields[3].trim().isEmpty()) {
+                try {
+                    discountRate = Double.parseDouble(fields[3].trim());
+                } catch (NumberFormatException e) {
+                    return rejectRow(lineNumber, "invalid discount rate '" + fields[3].trim() + "'");
+                }
+            }
+            if (discountRate < 0 || discountRate >= 1) {
+                return rejectRow(lineNumber, "discount rate must be in [0, 1)");
+            }
+        }
+        return new ParsedRow(lineNumber, new EncodedAccount(username, password, role, discountRate), null);
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.util.Scanner;
+
+public class Admin extends User {
+    private static final int COUNTER_BATCH_SIZE = 256;
+
+    private ChangeEventBus.Subscription counterSubscription;
+    private OperationCounter operationCounter;
+    private SystemStats lastStats;
+
+    public Admin(String username, String password) {
+        super(username, password, UserRole.ADMIN);
+    }
+
+    public SystemStats captureStats(UserManager userManager, StoreService storeService) {
+        ChangeEventBus eventBus = storeService.getEventBus();
+        if (operationCounter == null && eventBus != null) {
+            operationCounter = new OperationCounter();
+            counterSubscription = eventBus.subscribe("admin-" + getUsername() + "-counter", COUNTER_BATCH_SIZE, operationCounter);
+        }
+        SystemStats stats = SystemStats.capture(userManager, storeService, counterSubscription, operationCounter);
+        stats.print(lastStats);
+        lastStats = stats;
+        return stats;
+    }
+
+    public void stopStats() {
+        if (counterSubscription != null) {
+            counterSubscription.cancel();
+            counterSubscription = null;
+            operationCounter = null;
+        }
+        lastStats = null;
+    }
+
+    public void flushTransactionLog() {
+        TransactionHistory history = TransactionLogger.getHistory();
+        if (history == null) {
+            System.out.println("Transaction history is not enabled.");
+            return;
+        }
+        long pending = history.getPendingWrites();
+        history.flush();
+        System.out.println("Transaction log flushed (" + pending + " pending write(s) at request time).");
+    }
+
+    public void addStoreShard(StoreService storeService) {
+        if (!(storeService instanceof ShardedStoreService)) {
+            System.out.println("The store service is not sharded. Start the server with --shards to enable sharding.");
+            return;
+        }
+        ((ShardedStoreService) storeService).addShard();
+    }
+
+    public void exportCatalog(UserManager userManager, StoreService storeService, String fileName, CatalogExporter.Format format) {
+        CatalogExporter exporter = userManager.getCatalogExporter();
+        if (exporter == null) {
+            System.out.println("Catalog export is not configured.");
+            return;
+        }
+        try {
+            exporter.export(storeService, fileName, format).print();
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Could not export catalog to " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean handleMenu(Scanner scanner, UserManager userManager, StoreService storeService) {
+        return new AdminMenuHandler(this, scanner, userManager, storeService).processMenu();
+    }
+}
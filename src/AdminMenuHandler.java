@@ -0,0 +1,106 @@
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+public class AdminMenuHandler {
+    private static final int DEFAULT_WATCH_SECONDS = 10;
+
+    private Admin admin;
+    private Scanner scanner;
+    private UserManager userManager;
+    private StoreService storeService;
+
+    public AdminMenuHandler(Admin admin, Scanner scanner, UserManager userManager, StoreService storeService) {
+        this.admin = admin;
+        this.scanner = scanner;
+        this.userManager = userManager;
+        this.storeService = storeService;
+    }
+
+    public boolean processMenu() {
+        System.out.println("1. View System Stats");
+        System.out.println("2. Watch System Stats");
+        System.out.println("3. Flush Transaction Log");
+        System.out.println("4. Export Catalog Snapshot");
+        System.out.println("5. Add Store Shard");
+        System.out.println("6. Logout");
+        System.out.print("Choose an option: ");
+        int choice;
+        try {
+            choice = Integer.parseInt(scanner.nextLine());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input. Please enter a number.");
+            return false;
+        }
+        return executeMenuChoice(choice);
+    }
+
+    private boolean executeMenuChoice(int choice) {
+        switch (choice) {
+            case 1:
+                admin.captureStats(userManager, storeService);
+                break;
+            case 2:
+                handleWatchStats();
+                break;
+            case 3:
+                admin.flushTransactionLog();
+                break;
+            case 4:
+                handleExportCatalog();
+                break;
+            case 5:
+                admin.addStoreShard(storeService);
+                break;
+            case 6:
+                admin.stopStats();
+                System.out.println("Logged out.");
+                return true;
+            default:
+                System.out.println("Invalid option!");
+                break;
+        }
+        return false;
+    }
+
+    private void handleWatchStats() {
+        System.out.print("Refresh every second for how many seconds? [" + DEFAULT_WATCH_SECONDS + "]: ");
+        String input = scanner.nextLine().trim();
+        int seconds = DEFAULT_WATCH_SECONDS;
+        try {
+            if (!input.isEmpty()) {
+                seconds = Integer.parseInt(input);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number. Watching for " + DEFAULT_WATCH_SECONDS + " seconds.");
+        }
+        admin.captureStats(userManager, storeService);
+        for (int i = 0; i < seconds; i++) {
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            admin.captureStats(userManager, storeService);
+        }
+    }
+
+    private void handleExportCatalog() {
+        System.out.print("Export format (csv/jsonl) [csv]: ");
+        String formatInput = scanner.nextLine().trim();
+        CatalogExporter.Format format;
+        try {
+            format = formatInput.isEmpty() ? CatalogExporter.Format.CSV : CatalogExporter.Format.fromString(formatInput);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown export format: " + formatInput);
+            return;
+        }
+        String defaultName = "catalog-snapshot-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "."
+                + format.name().toLowerCase();
+        System.out.print("Export file name [" + defaultName + "]: ");
+        String fileName = scanner.nextLine().trim();
+        admin.exportCatalog(userManager, storeService, fileName.isEmpty() ? defaultName : fileName, format);
+    }
+}
@@ -0,0 +1,191 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class AdmissionController {
+    private static final int MAX_TRACKED_USERS = 100_000;
+    private static final int SWEEP_BUDGET = 64;
+
+    private final double perUserRate;
+    private final double perUserBurst;
+    private final TokenBucket globalBucket;
+    private final TokenBucket registrationBucket;
+    private final long maxQueueWaitNanos;
+    private final int maxQueueDepth;
+    private final ConcurrentHashMap<String, TokenBucket> userBuckets;
+    private final ReentrantLock sweepLock;
+    private Iterator<Map.Entry<String, TokenBucket>> sweepHand;
+    private final ConcurrentHashMap<String, LongAdder> rejectionsByOperation;
+    private final LongAdder admitted;
+    private final LongAdder queued;
+    private final LongAdder rejected;
+    private final AtomicInteger queueDepth;
+    private final AtomicInteger peakQueueDepth;
+
+    public AdmissionController(double perUserRate, double perUserBurst, double globalRate, double globalBurst,
+                               double registrationRate, double registrationBurst, long maxQueueWaitMillis, int maxQueueDepth) {
+        this.perUserRate = perUserRate;
+        this.perUserBurst = perUserBurst;
+        this.globalBucket = new TokenBucket(globalRate, globalBurst);
+        this.registrationBucket = new TokenBucket(registrationRate, registrationBurst);
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        this.maxQueueDepth = maxQueueDepth;
+        this.userBuckets = new ConcurrentHashMap<>();
+        this.sweepLock = new ReentrantLock();
+        this.rejectionsByOperation = new ConcurrentHashMap<>();
+        this.admitted = new LongAdder();
+        this.queued = new LongAdder();
+        this.rejected = new LongAdder();
+        this.queueDepth = new AtomicInteger();
+        this.peakQueueDepth = new AtomicInteger();
+    }
+
+    public boolean admit(String username, String operation) {
+        return admit(bucketFor(username), operation);
+    }
+
+    /**
+     * Registrations come from callers that have no account yet, so they share one bucket rather
+     * than getting a fresh per-user bucket for every username tried.
+     */
+    public boolean admitRegistration() {
+        return admit(registrationBucket, "REGISTER_USER");
+    }
+
+    private boolean admit(TokenBucket userBucket, String operation) {
+        if (tryAcquire(userBucket)) {
+            admitted.increment();
+            return true;
+        }
+        if (enterQueue()) {
+            try {
+                long deadline = System.nanoTime() + maxQueueWaitNanos;
+                while (true) {
+                    long wait = Math.max(userBucket.nanosUntilAvailable(), globalBucket.nanosUntilAvailable());
+                    if (System.nanoTime() + wait > deadline) {
+                        break;
+                    }
+                    LockSupport.parkNanos(Math.max(wait, 1));
+                    if (tryAcquire(userBucket)) {
+                        admitted.increment();
+                        return true;
+                    }
+                }
+            } finally {
+                queueDepth.decrementAndGet();
+            }
+        }
+        rejected.increment();
+        rejectionsByOperation.computeIfAbsent(operation, op -> new LongAdder()).increment();
+        System.out.println("Request rate limit exceeded for " + operation + ". Please try again shortly.");
+        return false;
+    }
+
+    private boolean tryAcquire(TokenBucket userBucket) {
+        if (!userBucket.tryAcquire()) {
+            return false;
+        }
+        if (!globalBucket.tryAcquire()) {
+            userBucket.refund();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean enterQueue() {
+        int depth = queueDepth.incrementAndGet();
+        if (depth > maxQueueDepth) {
+            queueDepth.decrementAndGet();
+            return false;
+        }
+        queued.increment();
+        peakQueueDepth.accumulateAndGet(depth, Math::max);
+        return true;
+    }
+
+    private TokenBucket bucketFor(String username) {
+        TokenBucket bucket = userBuckets.get(username);
+        if (bucket == null) {
+            bucket = userBuckets.computeIfAbsent(username, name -> new TokenBucket(perUserRate, perUserBurst));
+            if (userBuckets.size() > MAX_TRACKED_USERS) {
+                sweep();
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Clock sweep over the tracked buckets: the hand resumes where the last sweep stopped and
+     * drops buckets that have refilled, since a fresh bucket behaves the same. If every bucket it
+     * passes is in use, the one idle longest is dropped so the table stays bounded. Only one
+     * thread sweeps at a time; the others carry on admitting.
+     */
+    private void sweep() {
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            Map.Entry<String, TokenBucket> idlest = null;
+            for (int visited = 0; visited < SWEEP_BUDGET && userBuckets.size() > MAX_TRACKED_USERS; visited++) {
+                if (sweepHand == null || !sweepHand.hasNext()) {
+                    sweepHand = userBuckets.entrySet().iterator();
+                    if (!sweepHand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<String, TokenBucket> entry = sweepHand.next();
+                if (entry.getValue().isFull()) {
+                    userBuckets.remove(entry.getKey(), entry.getValue());
+                } else if (idlest == null || entry.getValue().idleNanos() > idlest.getValue().idleNanos()) {
+                    idlest = entry;
+                }
+            }
+            if (idlest != null && userBuckets.size() > MAX_TRACKED_USERS) {
+                userBuckets.remove(idlest.getKey(), idlest.getValue());
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getQueuedCount() {
+        return queued.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public int getTrackedUserCount() {
+        return userBuckets.size();
+    }
+
+    public Map<String, Long> getRejectionsByOperation() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        rejectionsByOperation.forEach((operation, count) -> snapshot.put(operation, count.sum()));
+        return snapshot;
+    }
+
+    public String getStatsSummary() {
+        return String.format("admitted=%d, queued=%d, rejected=%d, queueDepth=%d, peakQueueDepth=%d, trackedUsers=%d",
+                getAdmittedCount(), getQueuedCount(), getRejectedCount(), getQueueDepth(), getPeakQueueDepth(), getTrackedUserCount());
+    }
+}
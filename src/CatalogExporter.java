@@ -0,0 +1,419 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Streams the catalog to a file. Stores are grouped, and large ones split, into segments of at
+ * most {@link #GAMES_PER_SEGMENT} games that worker threads encode straight into pooled direct
+ * buffers; the calling thread writes finished segments to the channel in order while later ones
+ * are still being encoded. A segment holds only store snapshot references and game ranges until
+ * it is encoded, and at most a fixed window of segments is in flight, so memory use does not
+ * grow with the number of games in the catalog. Exports are only written into the configured
+ * export directory and never replace an existing file.
+ */
+public class CatalogExporter {
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final int GAMES_PER_SEGMENT = 16 * 1024;
+    private static final int BUFFERS_PER_SEGMENT = 4;
+    private static final byte[] CSV_HEADER = "store,owner,game,price,genre\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    public enum Format {
+        CSV, JSONL;
+
+        public static Format fromString(String text) {
+            return valueOf(text.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static class Report {
+        private final Path file;
+        private final long stores;
+        private final long games;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Report(Path file, long stores, long games, long bytes, long elapsedNanos) {
+            this.file = file;
+            this.stores = stores;
+            this.games = games;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getStores() {
+            return stores;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("Exported %d stores and %d games to %s (%.1f MB in %.2f s, %.1f MB/s).%n", stores, games, file,
+                    bytes / 1e6, seconds, (seconds > 0) ? bytes / 1e6 / seconds : 0);
+        }
+    }
+
+    private final int threads;
+    private final int window;
+    private final Path directory;
+    private final ExecutorService encoders;
+    private final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private ByteBuffer slab;
+
+    /**
+     * A range of one store's games, by position in the store snapshot's iteration order. A store
+     * with more than {@link #GAMES_PER_SEGMENT} games is cut into several slices. Only the
+     * snapshot reference and the bounds are kept; games are walked when the slice is encoded.
+     */
+    private static class Slice {
+        private final String storeName;
+        private final StoreSnapshot store;
+        private final int from;
+        private final int to;
+
+        Slice(String storeName, StoreSnapshot store, int from, int to) {
+            this.storeName = storeName;
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    public CatalogExporter(int threads, Path directory) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Export thread count must be positive.");
+        }
+        this.threads = threads;
+        this.window = threads * 2;
+        this.directory = directory;
+        this.encoders = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "catalog-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Resolves a bare file name inside the export directory. Anything that could name a file
+     * elsewhere (a separator, a drive or root, "." or "..") is rejected.
+     */
+    private Path resolve(String fileName) {
+        Path name;
+        try {
+            name = Paths.get(fileName);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("invalid file name '" + fileName + "'");
+        }
+        if (fileName.isEmpty() || name.isAbsolute() || name.getRoot() != null || name.getNameCount() != 1
+                || !name.getFileName().toString().equals(fileName) || fileName.equals(".") || fileName.equals("..")) {
+            throw new IllegalArgumentException("exports must be a plain file name inside " + directory);
+        }
+        return directory.resolve(name);
+    }
+
+    /**
+     * Exports run one at a time: they share the encoder threads and the buffer pool, which is
+     * sized for a single export's in-flight window.
+     */
+    public synchronized Report export(StoreService storeService, String fileName, Format format) throws IOException {
+        long start = System.nanoTime();
+        Path file = resolve(fileName);
+        Files.createDirectories(directory);
+        List<Map.Entry<String, StoreSnapshot>> stores = storeService.streamStoreSnapshots().collect(Collectors.toList());
+        stores.sort(Map.Entry.comparingByKey());
+        List<List<Slice>> segments = planSegments(stores);
+
+        long bytes = 0;
+        long games = 0;
+        boolean completed = false;
+        ArrayDeque<CompletableFuture<Segment>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            if (format == Format.CSV) {
+                bytes += channel.write(ByteBuffer.wrap(CSV_HEADER));
+            }
+            int next = 0;
+            while (next < segments.size() || !inFlight.isEmpty()) {
+                while (next < segments.size() && inFlight.size() < window) {
+                    List<Slice> slices = segments.get(next++);
+                    inFlight.add(CompletableFuture.supplyAsync(() -> encode(slices, format), encoders));
+                }
+                Segment segment = inFlight.poll().join();
+                games += segment.games;
+                try {
+                    for (ByteBuffer buffer : segment.buffers) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            bytes += channel.write(buffer);
+                        }
+                    }
+                } finally {
+                    segment.release();
+                }
+            }
+            completed = true;
+        } catch (CompletionException e) {
+            throw new IOException("Catalog export failed: " + e.getCause(), e.getCause());
+        } finally {
+            if (!completed) {
+                abandon(inFlight);
+                Files.deleteIfExists(file);
+            }
+        }
+        return new Report(file, stores.size(), games, bytes, System.nanoTime() - start);
+    }
+
+    private static List<List<Slice>> planSegments(List<Map.Entry<String, StoreSnapshot>> stores) {
+        List<List<Slice>> segments = new ArrayList<>();
+        List<Slice> current = new ArrayList<>();
+        int games = 0;
+        for (Map.Entry<String, StoreSnapshot> store : stores) {
+            int storeGames = store.getValue().getGames().size();
+            int from = 0;
+            do {
+                int to = Math.min(storeGames, from + GAMES_PER_SEGMENT - games);
+                current.add(new Slice(store.getKey(), store.getValue(), from, to));
+                games += to - from;
+                from = to;
+                if (games >= GAMES_PER_SEGMENT) {
+                    segments.add(current);
+                    current = new ArrayList<>();
+                    games = 0;
+                }
+            } while (from < storeGames);
+        }
+        if (!current.isEmpty()) {
+            segments.add(current);
+        }
+        return segments;
+    }
+
+    /**
+     * Waits out the segments still being encoded after a failure so their buffers go back to
+     * the pool instead of leaking out of it.
+     */
+    private static void abandon(ArrayDeque<CompletableFuture<Segment>> inFlight) {
+        for (CompletableFuture<Segment> pending : inFlight) {
+            try {
+                pending.join().release();
+            } catch (CompletionException e) {
+                // encode() already released what it had acquired
+            }
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Hands out slices of one direct slab, allocated on first use and sized so a full window of
+     * segments can be in flight. When the slab is exhausted, a heap buffer is used instead.
+     */
+    private ByteBuffer acquire() {
+        synchronized (bufferPool) {
+            if (slab == null) {
+                int count = window * BUFFERS_PER_SEGMENT;
+                slab = ByteBuffer.allocateDirect(count * BUFFER_BYTES);
+                for (int i = 0; i < count; i++) {
+                    slab.limit((i + 1) * BUFFER_BYTES).position(i * BUFFER_BYTES);
+                    bufferPool.offer(slab.slice());
+                }
+            }
+        }
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(BUFFER_BYTES);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns slab slices to the pool. Heap overflow buffers are dropped here on purpose and
+     * left to the garbage collector, so the pool never grows past the slab.
+     */
+    private void release(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            bufferPool.offer(buffer);
+        }
+    }
+
+    private Segment encode(List<Slice> slices, Format format) {
+        Segment segment = new Segment();
+        try {
+            for (Slice slice : slices) {
+                String owner = slice.store.getOwnerUsername();
+                Iterator<Game> games = slice.store.getGames().values().iterator();
+                for (int i = 0; i < slice.from && games.hasNext(); i++) {
+                    games.next();
+                }
+                for (int i = slice.from; i < slice.to && games.hasNext(); i++) {
+                    Game game = games.next();
+                    if (format == Format.CSV) {
+                        segment.putCsv(slice.storeName).put((byte) ',').putCsv(owner).put((byte) ',').putCsv(game.getName())
+                                .put((byte) ',').putCents(Math.round(game.getPrice() * 100)).put((byte) ',').putCsv(game.getGenre())
+                                .put((byte) '\n');
+                    } else {
+                        segment.putAscii("{\"store\":").putJson(slice.storeName).putAscii(",\"owner\":").putJson(owner)
+                                .putAscii(",\"game\":").putJson(game.getName()).putAscii(",\"price\":")
+                                .putCents(Math.round(game.getPrice() * 100)).putAscii(",\"genre\":").putJson(game.getGenre())
+                                .putAscii("}\n");
+                    }
+                    segment.games++;
+                }
+            }
+        } catch (RuntimeException e) {
+            segment.release();
+            throw e;
+        }
+        return segment;
+    }
+
+    /**
+     * Encoded output for one range of stores: a chain of pooled buffers filled byte by byte,
+     * with UTF-8 encoding and escaping done in place so no per-record strings are built.
+     */
+    private class Segment {
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private ByteBuffer current;
+        private long games;
+
+        Segment() {
+            current = acquire();
+            buffers.add(current);
+        }
+
+        void release() {
+            for (ByteBuffer buffer : buffers) {
+                CatalogExporter.this.release(buffer);
+            }
+            buffers.clear();
+        }
+
+        Segment put(byte b) {
+            if (!current.hasRemaining()) {
+                current = acquire();
+                buffers.add(current);
+            }
+            current.put(b);
+            return this;
+        }
+
+        Segment putAscii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                put((byte) text.charAt(i));
+            }
+            return this;
+        }
+
+        Segment putCents(long cents) {
+            if (cents < 0) {
+                put((byte) '-');
+                cents = -cents;
+            }
+            putDigits(cents / 100);
+            put((byte) '.');
+            put((byte) ('0' + (cents % 100) / 10));
+            return put((byte) ('0' + cents % 10));
+        }
+
+        private void putDigits(long value) {
+            if (value >= 10) {
+                putDigits(value / 10);
+            }
+            put((byte) ('0' + value % 10));
+        }
+
+        Segment putCsv(String value) {
+            if (value == null) {
+                return this;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                put((byte) '"');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    put((byte) '"');
+                }
+                i = putUtf8(value, i);
+            }
+            if (quote) {
+                put((byte) '"');
+            }
+            return this;
+        }
+
+        Segment putJson(String value) {
+            if (value == null) {
+                return putAscii("null");
+            }
+            put((byte) '"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    put((byte) '\\').put((byte) c);
+                } else if (c < 0x20) {
+                    putAscii("\\u00").put(HEX[c >> 4]).put(HEX[c & 0xF]);
+                } else {
+                    i = putUtf8(value, i);
+                }
+            }
+            return put((byte) '"');
+        }
+
+        private int putUtf8(String value, int index) {
+            char c = value.charAt(index);
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+                put((byte) (0xF0 | (codePoint >> 18))).put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F))).put((byte) (0x80 | (codePoint & 0x3F)));
+                return index + 1;
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?');
+            } else {
+                put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+            }
+            return index;
+        }
+    }
+}
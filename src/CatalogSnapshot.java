@@ -0,0 +1,96 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+public final class CatalogSnapshot extends AbstractMap<String, Map<String, Game>> {
+    private static final CatalogSnapshot EMPTY = new CatalogSnapshot(HashTrie.empty(), 0, 0);
+
+    private final HashTrie<String, StoreSnapshot> stores;
+    private final int gameCount;
+    private final long version;
+
+    private CatalogSnapshot(HashTrie<String, StoreSnapshot> stores, int gameCount, long version) {
+        this.stores = stores;
+        this.gameCount = gameCount;
+        this.version = version;
+    }
+
+    static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    public StoreSnapshot getStore(String storeName) {
+        return stores.get(storeName);
+    }
+
+    public Map<String, StoreSnapshot> getStores() {
+        return stores;
+    }
+
+    CatalogSnapshot withStore(String storeName, StoreSnapshot store, long newVersion) {
+        StoreSnapshot previous = stores.get(storeName);
+        int games = gameCount + store.getGames().size() - ((previous != null) ? previous.getGames().size() : 0);
+        return new CatalogSnapshot(stores.plus(storeName, store), games, newVersion);
+    }
+
+    CatalogSnapshot withoutStore(String storeName, long newVersion) {
+        StoreSnapshot removed = stores.get(storeName);
+        if (removed == null) {
+            return this;
+        }
+        return new CatalogSnapshot(stores.minus(storeName), gameCount - removed.getGames().size(), newVersion);
+    }
+
+    @Override
+    public Map<String, Game> get(Object storeName) {
+        StoreSnapshot store = stores.get(storeName);
+        return (store != null) ? store.getGames() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object storeName) {
+        return stores.containsKey(storeName);
+    }
+
+    @Override
+    public int size() {
+        return stores.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Map<String, Game>>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Map<String, Game>>>() {
+            @Override
+            public Iterator<Map.Entry<String, Map<String, Game>>> iterator() {
+                Iterator<Map.Entry<String, StoreSnapshot>> entries = stores.entrySet().iterator();
+                return new Iterator<Map.Entry<String, Map<String, Game>>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Map<String, Game>> next() {
+                        Map.Entry<String, StoreSnapshot> entry = entries.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().getGames());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return stores.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+public class ChangeEvent {
+    public enum Type {
+        ADD_STORE,
+        ADD_GAME,
+        EDIT_GAME_PRICE,
+        EDIT_GAME_GENRE,
+        REMOVE_GAME,
+        RENAME_STORE,
+        REGISTER_USER,
+        BALANCE_CHANGE
+    }
+
+    volatile long sequence = -1;
+    private long timestampMillis;
+    private Type type;
+    private String username;
+    private String storeName;
+    private String gameName;
+    private double amount;
+    private String value;
+
+    void set(Type type, String username, String storeName, String gameName, double amount, String value, long timestampMillis) {
+        this.type = type;
+        this.username = username;
+        this.storeName = storeName;
+        this.gameName = gameName;
+        this.amount = amount;
+        this.value = value;
+        this.timestampMillis = timestampMillis;
+    }
+
+    void copyFrom(ChangeEvent other) {
+        set(other.type, other.username, other.storeName, other.gameName, other.amount, other.value, other.timestampMillis);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getGameName() {
+        return gameName;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{seq=" + sequence + ", type=" + type + ", user='" + username + "', store='" + storeName
+                + "', game='" + gameName + "', amount=" + amount + ", value='" + value + "'}";
+    }
+}
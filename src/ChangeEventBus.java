@@ -0,0 +1,165 @@
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A multi-producer ring of change events. A publisher claims its sequence with one atomic
+ * increment, waits for the previous lap's event in that slot to be published, then writes the
+ * slot under a seqlock; subscribers read each slot until its sequence shows it is complete.
+ */
+public class ChangeEventBus {
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private final ChangeEvent[] ring;
+    private final int mask;
+    private final List<Subscription> subscriptions;
+    private final AtomicLong claimed = new AtomicLong();
+
+    public ChangeEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeEventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a positive power of two: " + capacity);
+        }
+        this.ring = new ChangeEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.ring[i] = new ChangeEvent();
+            this.ring[i].sequence = i - capacity;
+        }
+        this.mask = capacity - 1;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    public void publish(ChangeEvent.Type type, String username, String storeName, String gameName, double amount, String value) {
+        long next = claimed.getAndIncrement();
+        ChangeEvent slot = ring[(int) (next & mask)];
+        while (slot.sequence != next - ring.length) {
+            Thread.onSpinWait();
+        }
+        slot.sequence = WRITING;
+        VarHandle.storeStoreFence();
+        slot.set(type, username, storeName, gameName, amount, value, System.currentTimeMillis());
+        slot.sequence = next;
+    }
+
+    private long cursor() {
+        return claimed.get() - 1;
+    }
+
+    public long getPublishedCount() {
+        return claimed.get();
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public Subscription subscribe(String name, int batchSize, ChangeEventHandler handler) {
+        Subscription subscription = new Subscription(name, batchSize, handler, claimed.get());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return subscriptions;
+    }
+
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+    }
+
+    public class Subscription implements Runnable {
+        private final String name;
+        private final int batchSize;
+        private final ChangeEventHandler handler;
+        private final ChangeEvent scratch;
+        private final Thread thread;
+        private volatile long nextSequence;
+        private volatile long dropped;
+        private volatile boolean running;
+
+        private Subscription(String name, int batchSize, ChangeEventHandler handler, long startSequence) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.name = name;
+            this.batchSize = batchSize;
+            this.handler = handler;
+            this.scratch = new ChangeEvent();
+            this.nextSequence = startSequence;
+            this.running = true;
+            this.thread = new Thread(this, "change-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                if (drainBatch() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private int drainBatch() {
+            long available = cursor();
+            if (nextSequence > available) {
+                return 0;
+            }
+            long oldestRetained = available - ring.length + 1;
+            if (nextSequence < oldestRetained) {
+                dropped += oldestRetained - nextSequence;
+                nextSequence = oldestRetained;
+            }
+            long last = Math.min(available, nextSequence + batchSize - 1);
+            int handled = 0;
+            for (long sequence = nextSequence; sequence <= last; sequence++) {
+                ChangeEvent slot = ring[(int) (sequence & mask)];
+                if (slot.sequence != sequence) {
+                    break;
+                }
+                scratch.copyFrom(slot);
+                VarHandle.loadLoadFence();
+                if (slot.sequence != sequence) {
+                    break;
+                }
+                scratch.sequence = sequence;
+                handler.onEvent(scratch, sequence == last);
+                handled++;
+            }
+            nextSequence += handled;
+            return handled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getNextSequence() {
+            return nextSequence;
+        }
+
+        public long getLag() {
+            return Math.max(0, claimed.get() - nextSequence);
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public void cancel() {
+            running = false;
+            subscriptions.remove(this);
+        }
+    }
+}
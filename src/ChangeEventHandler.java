@@ -0,0 +1,3 @@
+public interface ChangeEventHandler {
+	void onEvent(ChangeEvent event, boolean endOfBatch);
+}
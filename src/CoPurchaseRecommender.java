@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CoPurchaseRecommender {
+    private final int maxNeighborsPerGame;
+    private final int purchaseWindow;
+    private final ConcurrentHashMap<String, Neighbors> neighborsByGame = new ConcurrentHashMap<>();
+
+    public CoPurchaseRecommender(int maxNeighborsPerGame, int purchaseWindow) {
+        if (maxNeighborsPerGame <= 0 || purchaseWindow <= 0) {
+            throw new IllegalArgumentException("Neighbor cap and purchase window must be positive.");
+        }
+        this.maxNeighborsPerGame = maxNeighborsPerGame;
+        this.purchaseWindow = purchaseWindow;
+    }
+
+    public static class Recommendation {
+        private final String gameName;
+        private final long count;
+
+        Recommendation(String gameName, long count) {
+            this.gameName = gameName;
+            this.count = count;
+        }
+
+        public String getGameName() {
+            return gameName;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return gameName + " (" + count + ")";
+        }
+    }
+
+    /**
+     * Neighbors kept sorted by descending count, so the top k are simply the first k slots.
+     * When the table is full the least frequent neighbor is replaced and the newcomer inherits
+     * its count, which keeps memory at the cap while letting rising pairs climb back in.
+     */
+    private static class Neighbors {
+        private final String[] names;
+        private final long[] counts;
+        private int size;
+
+        Neighbors(int capacity) {
+            this.names = new String[capacity];
+            this.counts = new long[capacity];
+        }
+
+        synchronized void increment(String name) {
+            int index = indexOf(name);
+            if (index < 0) {
+                if (size < names.length) {
+                    index = size++;
+                    counts[index] = 0;
+                } else {
+                    index = size - 1;
+                }
+                names[index] = name;
+            }
+            counts[index]++;
+            while (index > 0 && counts[index - 1] < counts[index]) {
+                swap(index - 1, index);
+                index--;
+            }
+        }
+
+        synchronized List<Recommendation> top(int k) {
+            int limit = Math.min(k, size);
+            List<Recommendation> top = new ArrayList<>(limit);
+            for (int i = 0; i < limit; i++) {
+                top.add(new Recommendation(names[i], counts[i]));
+            }
+            return top;
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void swap(int a, int b) {
+            String name = names[a];
+            names[a] = names[b];
+            names[b] = name;
+            long count = counts[a];
+            counts[a] = counts[b];
+            counts[b] = count;
+        }
+    }
+
+    public void recordPurchase(String gameName, List<String> ownedGames) {
+        Set<String> recent = new HashSet<>();
+        for (int i = ownedGames.size() - 1; i >= 0 && recent.size() < purchaseWindow; i--) {
+            recent.add(ownedGames.get(i));
+        }
+        recent.remove(gameName);
+        if (recent.isEmpty()) {
+            return;
+        }
+        Neighbors bought = neighborsFor(gameName);
+        for (String other : recent) {
+            bought.increment(other);
+            neighborsFor(other).increment(gameName);
+        }
+    }
+
+    public List<Recommendation> recommend(String gameName, int k) {
+        Neighbors neighbors = neighborsByGame.get(gameName);
+        return (neighbors != null) ? neighbors.top(k) : Collections.emptyList();
+    }
+
+    private Neighbors neighborsFor(String gameName) {
+        return neighborsByGame.computeIfAbsent(gameName, name -> new Neighbors(maxNeighborsPerGame));
+    }
+
+    public int getTrackedGameCount() {
+        return neighborsByGame.size();
+    }
+
+    public long estimatedBytes() {
+        return (long) neighborsByGame.size() * maxNeighborsPerGame * (Long.BYTES + 4);
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A sealed log segment stored as independently deflated blocks of whole records, followed by a
+ * footer mapping each block's first logical offset to its place in the file. Logical offsets are
+ * the offsets the records had in the plain segment, so positions handed out while the segment
+ * was active stay valid, and reading one record inflates only the block that holds it.
+ */
+public class CompressedSegment {
+    public static final int BLOCK_BYTES = 64 * 1024;
+    private static final int MAGIC = 0x5345475A;
+    private static final int TRAILER_BYTES = 16;
+    private static final int FOOTER_ENTRY_BYTES = 16;
+
+    private final long[] logicalStarts;
+    private final long[] fileOffsets;
+    private final long logicalBytes;
+
+    private CompressedSegment(long[] logicalStarts, long[] fileOffsets, long logicalBytes) {
+        this.logicalStarts = logicalStarts;
+        this.fileOffsets = fileOffsets;
+        this.logicalBytes = logicalBytes;
+    }
+
+    public static CompressedSegment open(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_BYTES) {
+            throw new IOException("Compressed segment is truncated");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+        readFully(channel, trailer, size - TRAILER_BYTES);
+        long logicalBytes = trailer.getLong(0);
+        int blockCount = trailer.getInt(8);
+        long footerStart = size - TRAILER_BYTES - (long) blockCount * FOOTER_ENTRY_BYTES;
+        if (trailer.getInt(12) != MAGIC || blockCount < 0 || footerStart < 0) {
+            throw new IOException("Compressed segment has no valid footer");
+        }
+        ByteBuffer footer = ByteBuffer.allocate(blockCount * FOOTER_ENTRY_BYTES);
+        readFully(channel, footer, footerStart);
+        long[] logicalStarts = new long[blockCount];
+        long[] fileOffsets = new long[blockCount + 1];
+        for (int i = 0; i < blockCount; i++) {
+            logicalStarts[i] = footer.getLong(i * FOOTER_ENTRY_BYTES);
+            fileOffsets[i] = footer.getLong(i * FOOTER_ENTRY_BYTES + 8);
+        }
+        fileOffsets[blockCount] = footerStart;
+        return new CompressedSegment(logicalStarts, fileOffsets, logicalBytes);
+    }
+
+    public int getBlockCount() {
+        return logicalStarts.length;
+    }
+
+    public long getLogicalBytes() {
+        return logicalBytes;
+    }
+
+    private int blockAt(long logicalOffset) {
+        int found = Arrays.binarySearch(logicalStarts, logicalOffset);
+        return (found >= 0) ? found : -found - 2;
+    }
+
+    private int logicalLength(int block) {
+        long end = (block + 1 < logicalStarts.length) ? logicalStarts[block + 1] : logicalBytes;
+        return (int) (end - logicalStarts[block]);
+    }
+
+    public int getBlockLength(int block) {
+        return logicalLength(block);
+    }
+
+    public byte[] inflateBlock(FileChannel channel, int block) throws IOException {
+        return inflateBlock(channel, block, null);
+    }
+
+    /**
+     * Inflates a block into {@code reuse} when it is large enough, so a scan over many blocks
+     * holds a single block in memory. The block's bytes start at index 0 of the returned array.
+     */
+    public byte[] inflateBlock(FileChannel channel, int block, byte[] reuse) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate((int) (fileOffsets[block + 1] - fileOffsets[block]));
+        readFully(channel, compressed, fileOffsets[block]);
+        int length = logicalLength(block);
+        byte[] data = (reuse != null && reuse.length >= length) ? reuse : new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int filled = 0;
+            while (filled < length) {
+                int inflated = inflater.inflate(data, filled, length - filled);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new EOFException("Compressed block " + block + " ended early");
+                }
+                filled += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed block " + block + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return data;
+    }
+
+    /**
+     * Returns the record at a logical offset, or null if the segment holds no record there.
+     */
+    public byte[] readRecord(FileChannel channel, long logicalOffset) throws IOException {
+        if (logicalOffset < 0 || logicalOffset >= logicalBytes) {
+            return null;
+        }
+        int block = blockAt(logicalOffset);
+        ByteBuffer data = ByteBuffer.wrap(inflateBlock(channel, block));
+        int start = (int) (logicalOffset - logicalStarts[block]);
+        int length = data.getInt(start);
+        return Arrays.copyOfRange(data.array(), start + 4, start + 4 + length);
+    }
+
+    public void forEachRecord(FileChannel channel, BiConsumer<Long, byte[]> consumer) throws IOException {
+        for (int block = 0; block < logicalStarts.length; block++) {
+            ByteBuffer data = ByteBuffer.wrap(inflateBlock(channel, block));
+            while (data.remaining() >= 4) {
+                long offset = logicalStarts[block] + data.position();
+                byte[] record = new byte[data.getInt()];
+                data.get(record);
+                consumer.accept(offset, record);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Compressed segment ended unexpectedly at " + position);
+            }
+        }
+    }
+
+    /**
+     * Writes records in the plain segment framing (length, then bytes), cutting a block whenever
+     * the next record would take it past {@link #BLOCK_BYTES}.
+     */
+    public static class Writer implements Closeable {
+        private final OutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private byte[] block = new byte[BLOCK_BYTES];
+        private byte[] compressed = new byte[BLOCK_BYTES];
+        private int blockSize;
+        private long[] blockStarts = new long[16];
+        private long[] blockOffsets = new long[16];
+        private int blockCount;
+        private long logicalBytes;
+        private long fileBytes;
+
+        public Writer(Path file) throws IOException {
+            this.out = new BufferedOutputStream(Files.newOutputStream(file), BLOCK_BYTES);
+        }
+
+        public long getLogicalBytes() {
+            return logicalBytes + blockSize;
+        }
+
+        public void append(byte[] data) throws IOException {
+            int framed = 4 + data.length;
+            if (blockSize > 0 && blockSize + framed > BLOCK_BYTES) {
+                flushBlock();
+            }
+            if (framed > block.length) {
+                block = Arrays.copyOf(block, framed);
+            }
+            ByteBuffer.wrap(block, blockSize, 4).putInt(data.length);
+            System.arraycopy(data, 0, block, blockSize + 4, data.length);
+            blockSize += framed;
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockCount == blockStarts.length) {
+                blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockStarts[blockCount] = logicalBytes;
+            blockOffsets[blockCount] = fileBytes;
+            blockCount++;
+
+            deflater.reset();
+            deflater.setInput(block, 0, blockSize);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int written = deflater.deflate(compressed);
+                out.write(compressed, 0, written);
+                fileBytes += written;
+            }
+            logicalBytes += blockSize;
+            blockSize = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (blockSize > 0) {
+                    flushBlock();
+                }
+                ByteBuffer footer = ByteBuffer.allocate(blockCount * FOOTER_ENTRY_BYTES + TRAILER_BYTES);
+                for (int i = 0; i < blockCount; i++) {
+                    footer.putLong(blockStarts[i]).putLong(blockOffsets[i]);
+                }
+                footer.putLong(logicalBytes).putInt(blockCount).putInt(MAGIC);
+                out.write(footer.array());
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+}
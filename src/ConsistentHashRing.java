@@ -0,0 +1,55 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ConsistentHashRing<T> {
+    private final TreeMap<Integer, T> ring;
+    private final int virtualNodes;
+
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual node count must be positive: " + virtualNodes);
+        }
+        this.ring = new TreeMap<>();
+        this.virtualNodes = virtualNodes;
+    }
+
+    public ConsistentHashRing(ConsistentHashRing<T> other) {
+        this.ring = new TreeMap<>(other.ring);
+        this.virtualNodes = other.virtualNodes;
+    }
+
+    public void addNode(String nodeId, T node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(nodeId + "#" + i), node);
+        }
+    }
+
+    public void removeNode(String nodeId) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(nodeId + "#" + i));
+        }
+    }
+
+    public T nodeFor(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("Hash ring has no nodes.");
+        }
+        Map.Entry<Integer, T> entry = ring.ceilingEntry(hash(key));
+        return (entry != null) ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    static int hash(String key) {
+        int h = 0x811c9dc5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -1,55 +1,155 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 public class Customer extends User {
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final int RECOMMENDATIONS_SHOWN = 5;
+
     private double balance;
     private List<String> ownedGames;
+    private UserManager userManager;
+    private int registryId = -1;
 
     public Customer(String username, String password) {
-        super(username, password, UserRole.CUSTOMER); 
+        this(username, password, UserRole.CUSTOMER);
+    }
+
+    protected Customer(String username, String password, UserRole role) {
+        super(username, password, role);
         this.balance = 0.0;
         this.ownedGames = new ArrayList<>();
     }
 
     public double getBalance() {
-        return balance;
+        return (registryId >= 0) ? userManager.getRegistry().getBalance(registryId) : balance;
     }
 
     public List<String> getOwnedGames() {
-        return ownedGames;
+        return (registryId >= 0) ? userManager.getRegistry().getOwnedGames(registryId) : Collections.unmodifiableList(ownedGames);
+    }
+
+    protected void addOwnedGame(String gameName) {
+        if (registryId >= 0) {
+            userManager.getRegistry().addOwnedGame(registryId, gameName);
+        } else {
+            ownedGames.add(gameName);
+        }
+    }
+
+    /**
+     * Backs this customer with its registry record, so balance and library live in the registry
+     * and survive the object being evicted and materialized again.
+     */
+    void bind(UserManager userManager, int registryId) {
+        this.userManager = userManager;
+        this.registryId = registryId;
+    }
+
+    protected boolean isAdmitted(String operation) {
+        AdmissionController admission = (userManager != null) ? userManager.getAdmissionController() : null;
+        return admission == null || admission.admit(getUsername(), operation);
     }
 
 	public boolean adjustBalance(double amount) {
-        if (this.balance + amount < 0) {
+        boolean applied;
+        if (registryId >= 0) {
+            applied = userManager.getRegistry().adjustBalance(registryId, amount);
+        } else {
+            applied = this.balance + amount >= 0;
+            if (applied) {
+                this.balance += amount;
+            }
+        }
+        if (!applied) {
             System.out.println("Cannot complete transaction: Insufficient balance.");
             return false;
         }
-        this.balance += amount;
+        if (userManager != null) {
+            userManager.recordBalanceChange(this, amount);
+        }
         return true;
     }
 
-    public void topUp(double amount) {
+    /**
+     * Runs an operation at most once per key. A retried key returns the outcome of the first
+     * attempt without running again; a request turned away by admission control is not
+     * recorded, so it can be retried with the same key. The key is claimed in the shared cache
+     * under the account's registry id, so the guarantee holds even when two sessions hold
+     * different objects for the same account.
+     */
+    protected boolean runIdempotent(String operation, String idempotencyKey, BooleanSupplier action) {
+        IdempotencyCache dedupe = (userManager != null && idempotencyKey != null) ? userManager.getIdempotencyCache() : null;
+        if (dedupe == null) {
+            return isAdmitted(operation) && action.getAsBoolean();
+        }
+        String account = (registryId >= 0) ? "#" + registryId : getUsername();
+        String dedupeKey = account + "\u0000" + operation + "\u0000" + idempotencyKey;
+        Boolean outcome = dedupe.claim(dedupeKey);
+        if (outcome != null) {
+            System.out.println("Request '" + idempotencyKey + "' was already processed. Skipping duplicate " + operation + ".");
+            return outcome;
+        }
+        if (!isAdmitted(operation)) {
+            dedupe.release(dedupeKey);
+            return false;
+        }
+        boolean succeeded;
+        try {
+            succeeded = action.getAsBoolean();
+        } catch (RuntimeException e) {
+            dedupe.release(dedupeKey);
+            throw e;
+        }
+        dedupe.recordOutcome(dedupeKey, succeeded);
+        return succeeded;
+    }
+
+    public boolean topUp(double amount) {
+        return topUp(amount, null);
+    }
+
+    public boolean topUp(double amount, String idempotencyKey) {
+        return runIdempotent("TOP_UP", idempotencyKey, () -> completeTopUp(amount));
+    }
+
+    private boolean completeTopUp(double amount) {
         if (amount > 0) {
             adjustBalance(amount);
             TransactionLogger.logTransaction(getUsername(), "TOP_UP", amount, "Balance topped up");
-            System.out.println("Balance topped up successfully. New balance: $" + String.format("%.2f", balance));
+            System.out.println("Balance topped up successfully. New balance: $" + String.format("%.2f", getBalance()));
+            return true;
         } else {
             System.out.println("Top up amount must be positive.");
+            return false;
         }
     }
-    
-    public void buyGame(String storeName, String gameName, StoreService storeService) {
+
+    public boolean buyGame(String storeName, String gameName, StoreService storeService) {
+        return buyGame(storeName, gameName, storeService, null);
+    }
+
+    public boolean buyGame(String storeName, String gameName, StoreService storeService, String idempotencyKey) {
+        return runIdempotent("BUY_GAME", idempotencyKey, () -> completePurchase(storeName, gameName, storeService));
+    }
+
+    protected boolean completePurchase(String storeName, String gameName, StoreService storeService) {
         Game gameToBuy = storeService.getGameFromStore(storeName, gameName);
         	
         if (!isGameAvailable(gameToBuy)) {
-            return;
+            return false;
         }
         
         double price = gameToBuy.getPrice();
         if (canAffordGame(price)) {
-            processGamePurchase(gameName, storeName, price);
+            return processGamePurchase(gameToBuy, storeName, price);
         }
+        return false;
     }
 
     private boolean isGameAvailable(Game game) {
@@ -61,35 +161,124 @@ public class Customer extends User {
     }
 
     private boolean canAffordGame(double price) {
-        if (this.balance < price) {
+        if (getBalance() < price) {
             System.out.println("Insufficient balance!");
             return false;
         }
         return true;
     }
 
-    protected void processGamePurchase(String gameName, String storeName, double price) {
+    protected boolean processGamePurchase(Game game, String storeName, double price) {
+        String gameName = game.getName();
         if (adjustBalance(-price)) {
-            this.ownedGames.add(gameName);
-            TransactionLogger.logTransaction(getUsername(), "PURCHASE", price, gameName + " from " + storeName);
+            addOwnedGame(gameName);
+            TransactionLogger.logPurchase(getUsername(), getRole(), "PURCHASE", price, storeName, game);
             System.out.println("Game '" + gameName + "' purchased successfully from '" + storeName + "'!");
-            System.out.println("It has been added to your library. New balance: $" + String.format("%.2f", balance));
+            System.out.println("It has been added to your library. New balance: $" + String.format("%.2f", getBalance()));
+            recommendAfterPurchase(gameName);
+            return true;
         } else {
             System.out.println("Purchase failed during balance adjustment.");
+            return false;
+        }
+    }
+
+    protected void recommendAfterPurchase(String gameName) {
+        CoPurchaseRecommender recommender = (userManager != null) ? userManager.getRecommender() : null;
+        if (recommender == null) {
+            return;
+        }
+        recommender.recordPurchase(gameName, getOwnedGames());
+        List<CoPurchaseRecommender.Recommendation> recommendations = recommender.recommend(gameName, RECOMMENDATIONS_SHOWN);
+        if (!recommendations.isEmpty()) {
+            System.out.println("Customers who bought '" + gameName + "' also bought: " + recommendations);
+        }
+    }
+
+    public void addToWishlist(String storeName, String gameName, Double targetPrice, StoreService storeService) {
+        WishlistService wishlists = storeService.getWishlists();
+        if (wishlists == null) {
+            System.out.println("Wishlists are not available.");
+            return;
+        }
+        if (storeService.getGameFromStore(storeName, gameName) == null
+                || !wishlists.addToWishlist(getUsername(), storeName, gameName, targetPrice, storeService)) {
+            System.out.println("Store or game not found!");
+            return;
+        }
+        System.out.println("'" + gameName + "' from '" + storeName + "' added to your wishlist"
+                + ((targetPrice != null) ? " with a target price of $" + String.format("%.2f", targetPrice) : "") + ".");
+    }
+
+    public void removeFromWishlist(String storeName, String gameName, StoreService storeService) {
+        WishlistService wishlists = storeService.getWishlists();
+        if (wishlists != null && wishlists.removeFromWishlist(getUsername(), storeName, gameName)) {
+            System.out.println("'" + gameName + "' removed from your wishlist.");
+        } else {
+            System.out.println("'" + gameName + "' from '" + storeName + "' is not on your wishlist.");
+        }
+    }
+
+    public void viewWishlist(StoreService storeService) {
+        WishlistService wishlists = storeService.getWishlists();
+        List<WishlistService.WishlistEntry> entries = (wishlists != null) ? wishlists.getWishlist(getUsername()) : Collections.emptyList();
+        System.out.println("\n--- Your Wishlist ---");
+        if (entries.isEmpty()) {
+            System.out.println("Your wishlist is empty.");
+            return;
+        }
+        for (WishlistService.WishlistEntry entry : entries) {
+            Game game = storeService.getGameFromStore(entry.getStoreName(), entry.getGameName());
+            String current = (game != null) ? "$" + String.format("%.2f", game.getPrice()) : "no longer listed";
+            String target = entry.hasTargetPrice() ? "target $" + String.format("%.2f", entry.getTargetPrice()) : "any price drop";
+            System.out.println(" - " + entry.getGameName() + " in " + entry.getStoreName() + ": " + current + " (" + target + ")");
+        }
+    }
+
+    public void showPriceAlerts(StoreService storeService) {
+        WishlistService wishlists = storeService.getWishlists();
+        List<String> alerts = (wishlists != null) ? wishlists.drainNotifications(getUsername()) : Collections.emptyList();
+        if (!alerts.isEmpty()) {
+            System.out.println("--- Price Alerts ---");
+            for (String alert : alerts) {
+                System.out.println(" * " + alert);
+            }
         }
     }
 
     public void viewMyGames() {
+        List<String> library = getOwnedGames();
         System.out.println("\n--- Your Game Library ---");
-        if (ownedGames.isEmpty()) {
+        if (library.isEmpty()) {
             System.out.println("You don't own any games yet.");
         } else {
-            for (String game : ownedGames) {
+            for (String game : library) {
                 System.out.println("- " + game);
             }
         }
     }
 
+    public void viewTransactionHistory(String typeFilter, int lastDays, int page) {
+        TransactionHistory history = TransactionLogger.getHistory();
+        if (history == null) {
+            System.out.println("Transaction history is not available.");
+            return;
+        }
+        Set<String> types = (typeFilter == null || typeFilter.isBlank()) ? null : Collections.singleton(typeFilter.trim().toUpperCase(Locale.ROOT));
+        long now = System.currentTimeMillis();
+        long from = (lastDays > 0) ? now - TimeUnit.DAYS.toMillis(lastDays) : Long.MIN_VALUE;
+        List<TransactionRecord> records = history.query(getUsername(), types, from, now, page, HISTORY_PAGE_SIZE);
+
+        System.out.println("\n--- Your Transaction History (page " + (page + 1) + ", newest first) ---");
+        if (records.isEmpty()) {
+            System.out.println("No transactions found.");
+        } else {
+            for (TransactionRecord record : records) {
+                System.out.println(record);
+            }
+        }
+    }
+
     @Override
     public void performAdminAction(Scanner scanner, UserManager userManager, StoreService storeService) {
         System.out.println("Customers (" + getUsername() + ") cannot perform admin actions.");
@@ -1,5 +1,6 @@
 
 import java.util.Scanner;
+import java.util.UUID;
 
 public class CustomerMenuHandler {
     private Customer customer;
@@ -15,13 +16,16 @@ public class CustomerMenuHandler {
     }
 
     public boolean processMenu() {
+        customer.showPriceAlerts(storeService);
         System.out.println("Balance: $" + String.format("%.2f", customer.getBalance()));
         System.out.println("1. View Stores and Games");
         System.out.println("2. Buy Game");
         System.out.println("3. Top Up Balance");
         System.out.println("4. View My Games");
-        System.out.println("5. Perform Admin Action (if applicable)");
-        System.out.println("6. Logout");
+        System.out.println("5. View Transaction History");
+        System.out.println("6. Manage Wishlist");
+        System.out.println("7. Perform Admin Action (if applicable)");
+        System.out.println("8. Logout");
         System.out.print("Choose an option: ");
         int choice;
         try {
@@ -48,9 +52,15 @@ public class CustomerMenuHandler {
                 handleViewMyGames();
                 break;
             case 5:
-                handlePerformAdminAction();
+                handleViewTransactionHistory();
                 break;
             case 6:
+                handleManageWishlist();
+                break;
+            case 7:
+                handlePerformAdminAction();
+                break;
+            case 8:
                 System.out.println("Logged out.");
                 return true;
             default:
@@ -69,23 +79,77 @@ public class CustomerMenuHandler {
         String storeName = scanner.nextLine();
         System.out.print("Enter game name: ");
         String gameName = scanner.nextLine();
-        customer.buyGame(storeName, gameName, storeService);
+        customer.buyGame(storeName, gameName, storeService, readRequestId());
     }
 
     private void handleTopUpBalance() {
         System.out.print("Enter amount to top up: ");
         try {
             double amount = Double.parseDouble(scanner.nextLine());
-            customer.topUp(amount);
+            customer.topUp(amount, readRequestId());
         } catch (NumberFormatException e) {
             System.out.println("Invalid amount.");
         }
     }
 
+    private String readRequestId() {
+        System.out.print("Request ID to retry (blank for a new request): ");
+        String requestId = scanner.nextLine().trim();
+        if (requestId.isEmpty()) {
+            requestId = UUID.randomUUID().toString();
+            System.out.println("Request ID: " + requestId);
+        }
+        return requestId;
+    }
+
     private void handleViewMyGames() {
         customer.viewMyGames();
     }
 
+    private void handleViewTransactionHistory() {
+        System.out.print("Filter by type (e.g. PURCHASE, TOP_UP; blank for all): ");
+        String typeFilter = scanner.nextLine();
+        System.out.print("Show the last N days (blank for all time): ");
+        String daysInput = scanner.nextLine();
+        System.out.print("Page (1 = most recent): ");
+        String pageInput = scanner.nextLine();
+        try {
+            int lastDays = daysInput.isBlank() ? 0 : Integer.parseInt(daysInput.trim());
+            int page = pageInput.isBlank() ? 0 : Math.max(0, Integer.parseInt(pageInput.trim()) - 1);
+            customer.viewTransactionHistory(typeFilter, lastDays, page);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number.");
+        }
+    }
+
+    private void handleManageWishlist() {
+        customer.viewWishlist(storeService);
+        System.out.println("1. Add or Update Wishlist Game");
+        System.out.println("2. Remove Wishlist Game");
+        System.out.println("3. Back");
+        System.out.print("Choose a wishlist option: ");
+        String option = scanner.nextLine();
+        if (!option.equals("1") && !option.equals("2")) {
+            return;
+        }
+        System.out.print("Enter store name: ");
+        String storeName = scanner.nextLine();
+        System.out.print("Enter game name: ");
+        String gameName = scanner.nextLine();
+        if (option.equals("2")) {
+            customer.removeFromWishlist(storeName, gameName, storeService);
+            return;
+        }
+        System.out.print("Enter target price (leave blank to be told about any price drop): ");
+        String targetInput = scanner.nextLine().trim();
+        try {
+            Double targetPrice = targetInput.isEmpty() ? null : Double.valueOf(targetInput);
+            customer.addToWishlist(storeName, gameName, targetPrice, storeService);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid target price.");
+        }
+    }
+
     private void handlePerformAdminAction() {
         customer.performAdminAction(scanner, userManager, storeService);
     }
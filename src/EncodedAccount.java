@@ -0,0 +1,27 @@
+import java.nio.charset.StandardCharsets;
+
+public class EncodedAccount {
+    final String username;
+    final byte[] name;
+    final byte[] secret;
+    final int hash;
+    final UserRole role;
+    final double discountRate;
+
+    EncodedAccount(String username, String password, UserRole role, double discountRate) {
+        this.username = username;
+        this.name = username.getBytes(StandardCharsets.UTF_8);
+        this.secret = password.getBytes(StandardCharsets.UTF_8);
+        this.hash = UserRegistry.hash(this.name);
+        this.role = role;
+        this.discountRate = discountRate;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public UserRole getRole() {
+        return role;
+    }
+}
@@ -1,9 +1,34 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Collectors;
 
 public class GameStore {
 
+    private static final long MAX_REPLICA_READ_LAG_MILLIS = 250;
+    private static final int REPLICA_INBOX_CAPACITY = 50_000;
+    private static final double PER_USER_REQUESTS_PER_SECOND = 5;
+    private static final double PER_USER_BURST = 10;
+    private static final double GLOBAL_REQUESTS_PER_SECOND = 1000;
+    private static final double GLOBAL_BURST = 2000;
+    private static final double REGISTRATIONS_PER_SECOND = 20;
+    private static final double REGISTRATION_BURST = 50;
+    private static final long MAX_ADMISSION_WAIT_MILLIS = 200;
+    private static final int MAX_ADMISSION_QUEUE_DEPTH = 64;
+    private static final String DEFAULT_HISTORY_DIRECTORY = "transactions";
+    private static final String DEFAULT_EXPORT_DIRECTORY = "exports";
+    private static final int EXPORT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int MAX_IDEMPOTENCY_KEYS = 100_000;
+    private static final long IDEMPOTENCY_KEY_TTL_MILLIS = 10 * 60 * 1000;
+    private static final int MAX_CO_PURCHASE_NEIGHBORS = 32;
+    private static final int CO_PURCHASE_WINDOW = 20;
+    private static final int WISHLIST_NOTIFIER_THREADS = 2;
+    private static final int WISHLIST_NOTIFICATION_BATCH = 1000;
+    private static final int MAX_PENDING_PRICE_ALERTS = 50;
+
     private static final Map<Integer, MenuAction> loggedOutActions = new HashMap<>();
     static {
         loggedOutActions.put(1, new RegisterAction());
@@ -16,7 +41,22 @@ public class GameStore {
         User currentUser = null;
 
         UserManager userManager = new UserManager();
-        StoreService storeService = new StoreService();
+        StoreService storeService = createStoreService(args);
+        startReplicas(storeService, args);
+
+        ChangeEventBus eventBus = new ChangeEventBus();
+        userManager.setEventBus(eventBus);
+        storeService.setEventBus(eventBus);
+        storeService.setWishlists(new WishlistService(WISHLIST_NOTIFIER_THREADS, WISHLIST_NOTIFICATION_BATCH, MAX_PENDING_PRICE_ALERTS));
+        userManager.setAdmissionController(new AdmissionController(PER_USER_REQUESTS_PER_SECOND, PER_USER_BURST,
+                GLOBAL_REQUESTS_PER_SECOND, GLOBAL_BURST, REGISTRATIONS_PER_SECOND, REGISTRATION_BURST, MAX_ADMISSION_WAIT_MILLIS,
+                MAX_ADMISSION_QUEUE_DEPTH));
+        userManager.setIdempotencyCache(new IdempotencyCache(MAX_IDEMPOTENCY_KEYS, IDEMPOTENCY_KEY_TTL_MILLIS));
+        userManager.setRecommender(new CoPurchaseRecommender(MAX_CO_PURCHASE_NEIGHBORS, CO_PURCHASE_WINDOW));
+        userManager.setCatalogExporter(createCatalogExporter(args));
+        provisionAccounts(userManager, args);
+        bootstrapAdmins(scanner, userManager, args);
+        openTransactionHistory(args);
 
         while (true) {
             System.out.println("\n--- Welcome to the Game Store App ---");
@@ -30,6 +70,92 @@ public class GameStore {
         }
     }
 
+    private static StoreService createStoreService(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--shards")) {
+                try {
+                    return new ShardedStoreService(Integer.parseInt(args[i + 1]));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid shard count: " + args[i + 1] + ". Using a single store service.");
+                }
+            }
+        }
+        return new StoreService();
+    }
+
+    private static void startReplicas(StoreService storeService, String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--replicas")) {
+                try {
+                    int replicaCount = Integer.parseInt(args[i + 1]);
+                    StoreJournal journal = new StoreJournal(MAX_REPLICA_READ_LAG_MILLIS, REPLICA_INBOX_CAPACITY);
+                    storeService.setJournal(journal);
+                    for (int r = 0; r < replicaCount; r++) {
+                        journal.addReplica(storeService);
+                    }
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid replica count: " + args[i + 1] + ". Running without read replicas.");
+                }
+            }
+        }
+    }
+
+    private static void provisionAccounts(UserManager userManager, String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--provision")) {
+                try {
+                    new AccountProvisioner(userManager).provision(Paths.get(args[i + 1])).print();
+                } catch (IOException e) {
+                    System.out.println("Could not read account file " + args[i + 1] + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void bootstrapAdmins(Scanner scanner, UserManager userManager, String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--admin")) {
+                String username = args[i + 1];
+                String password;
+                if (System.console() != null) {
+                    password = new String(System.console().readPassword("Password for admin '%s': ", username));
+                } else {
+                    System.out.print("Password for admin '" + username + "': ");
+                    password = scanner.nextLine();
+                }
+                if (password.isEmpty()) {
+                    System.out.println("Admin '" + username + "' was not created: the password is empty.");
+                } else {
+                    userManager.bootstrapAdmin(username, password);
+                }
+            }
+        }
+    }
+
+    private static CatalogExporter createCatalogExporter(String[] args) {
+        String exportDirectory = DEFAULT_EXPORT_DIRECTORY;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--export-dir")) {
+                exportDirectory = args[i + 1];
+            }
+        }
+        return new CatalogExporter(EXPORT_THREADS, Paths.get(exportDirectory));
+    }
+
+    private static void openTransactionHistory(String[] args) {
+        String historyDirectory = DEFAULT_HISTORY_DIRECTORY;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--history-dir")) {
+                historyDirectory = args[i + 1];
+            }
+        }
+        try {
+            TransactionLogger.setHistory(new TransactionHistory(Paths.get(historyDirectory)));
+        } catch (IOException e) {
+            System.out.println("Could not open transaction history " + historyDirectory + ": " + e.getMessage() + ". History will not be kept.");
+        }
+    }
+
     private static User handleLoggedInState(Scanner scanner, UserManager userManager, StoreService storeService, User currentUser) {
         System.out.println("\n--- Logged in as: " + currentUser.getUsername() + " (" + currentUser.getRole().getRoleName() + ") ---"); 
         boolean loggedOut = currentUser.handleMenu(scanner, userManager, storeService);
@@ -58,20 +184,32 @@ public class GameStore {
     }
 
     public static void viewAllStoresAndGames(StoreService storeService) {
-        Map<String, Map<String, Game>> allStores = storeService.getAllStores();
+        StoreService readView = storeService.getReadView();
+        List<Map.Entry<String, StoreSnapshot>> allStores = readView.streamStoreSnapshots().collect(Collectors.toList());
         if (allStores.isEmpty()) {
             System.out.println("No stores available yet.");
         } else {
-            for (Map.Entry<String, Map<String, Game>> storeEntry : allStores.entrySet()) {
-                System.out.println("\nStore: " + storeEntry.getKey() + " (Owner: " + storeService.getStoreOwner(storeEntry.getKey()) + ")");
-                if (storeEntry.getValue().isEmpty()) {
-                    System.out.println("  - No games in this store yet.");
-                } else {
-                    for (Game game : storeEntry.getValue().values()) {
-                        System.out.println("  - " + game.getName() + " ($" + String.format("%.2f", game.getPrice()) + ") - " + game.getGenre());
-                    }
-                }
+            ListingRenderCache listingCache = readView.getListingCache();
+            for (Map.Entry<String, StoreSnapshot> storeEntry : allStores) {
+                String storeName = storeEntry.getKey();
+                StoreSnapshot store = storeEntry.getValue();
+                System.out.print(listingCache.getOrRender("catalog", storeName, store.getVersion(),
+                        () -> renderStoreListing(storeName, store.getOwnerUsername(), store.getGames())));
+            }
+        }
+    }
+
+    private static String renderStoreListing(String storeName, String ownerUsername, Map<String, Game> games) {
+        StringBuilder listing = new StringBuilder();
+        listing.append("\nStore: ").append(storeName).append(" (Owner: ").append(ownerUsername).append(")\n");
+        if (games.isEmpty()) {
+            listing.append("  - No games in this store yet.\n");
+        } else {
+            for (Game game : games.values()) {
+                listing.append("  - ").append(game.getName()).append(" ($").append(String.format("%.2f", game.getPrice()))
+                        .append(") - ").append(game.getGenre()).append("\n");
             }
         }
+        return listing.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,365 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable hash array mapped trie. {@link #plus} and {@link #minus} return a new trie that
+ * shares every node off the path to the changed key, so an update copies at most one small
+ * node per level (O(log32 n)) and earlier versions stay valid for readers still holding them.
+ */
+public final class HashTrie<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = 8;
+    private static final HashTrie<?, ?> EMPTY = new HashTrie<>(new BitmapNode(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private HashTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> HashTrie<K, V> empty() {
+        return (HashTrie<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> HashTrie<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof HashTrie) {
+            return (HashTrie<K, V>) map;
+        }
+        HashTrie<K, V> trie = empty();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            trie = trie.plus(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Leaf leaf = root.find(key, hash(key), 0);
+        return (leaf != null) ? (V) leaf.getValue() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(key, hash(key), 0) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public HashTrie<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        boolean[] added = new boolean[1];
+        Node updated = root.put(new Leaf(key, value, hash(key)), 0, added);
+        return (updated == root) ? this : new HashTrie<>(updated, added[0] ? size + 1 : size);
+    }
+
+    public HashTrie<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Node updated = root.remove(key, hash(key), 0);
+        if (updated == root) {
+            return this;
+        }
+        return (updated != null) ? new HashTrie<>(updated, size - 1) : empty();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new TrieIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static final class Leaf extends AbstractMap.SimpleImmutableEntry<Object, Object> {
+        private static final long serialVersionUID = 1L;
+
+        private final int hash;
+
+        Leaf(Object key, Object value, int hash) {
+            super(key, value);
+            this.hash = hash;
+        }
+
+        boolean matches(Object key, int keyHash) {
+            return hash == keyHash && getKey().equals(key);
+        }
+    }
+
+    /**
+     * A trie node. Slots hold either a {@link Leaf} or a child node; collision nodes hold only
+     * leaves whose keys share a full hash.
+     */
+    private abstract static class Node {
+        final Object[] slots;
+
+        Node(Object[] slots) {
+            this.slots = slots;
+        }
+
+        abstract Leaf find(Object key, int hash, int shift);
+
+        abstract Node put(Leaf leaf, int shift, boolean[] added);
+
+        /** Returns this node if the key is absent, or null if the node became empty. */
+        abstract Node remove(Object key, int hash, int shift);
+
+        Leaf singleLeaf() {
+            return (slots.length == 1 && slots[0] instanceof Leaf) ? (Leaf) slots[0] : null;
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        private final int bitmap;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            super(slots);
+            this.bitmap = bitmap;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Leaf find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[index(bit)];
+            if (slot instanceof Leaf) {
+                return ((Leaf) slot).matches(key, hash) ? (Leaf) slot : null;
+            }
+            return ((Node) slot).find(key, hash, shift + BITS);
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, boolean[] added) {
+            int bit = bit(leaf.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, copy, 0, index);
+                copy[index] = leaf;
+                System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Leaf) {
+                Leaf existing = (Leaf) slot;
+                if (existing.matches(leaf.getKey(), leaf.hash)) {
+                    if (existing.getValue() == leaf.getValue()) {
+                        return this;
+                    }
+                    replacement = leaf;
+                } else {
+                    replacement = merge(existing, leaf, shift + BITS);
+                    added[0] = true;
+                }
+            } else {
+                Node child = (Node) slot;
+                replacement = child.put(leaf, shift + BITS, added);
+                if (replacement == child) {
+                    return this;
+                }
+            }
+            Object[] copy = slots.clone();
+            copy[index] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Leaf) {
+                if (!((Leaf) slot).matches(key, hash)) {
+                    return this;
+                }
+                replacement = null;
+            } else {
+                Node child = (Node) slot;
+                Node updated = child.remove(key, hash, shift + BITS);
+                if (updated == child) {
+                    return this;
+                }
+                Leaf inlined = (updated != null) ? updated.singleLeaf() : null;
+                replacement = (inlined != null) ? inlined : updated;
+            }
+            if (replacement != null) {
+                Object[] copy = slots.clone();
+                copy[index] = replacement;
+                return new BitmapNode(bitmap, copy);
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, copy.length - index);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private static Node merge(Leaf a, Leaf b, int shift) {
+            if (a.hash == b.hash) {
+                return new CollisionNode(a.hash, new Object[] {a, b});
+            }
+            int bitA = bit(a.hash, shift);
+            int bitB = bit(b.hash, shift);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Object[] {merge(a, b, shift + BITS)});
+            }
+            return new BitmapNode(bitA | bitB, (Integer.compareUnsigned(bitA, bitB) < 0) ? new Object[] {a, b} : new Object[] {b, a});
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        CollisionNode(int hash, Object[] leaves) {
+            super(leaves);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < slots.length; i++) {
+                if (((Leaf) slots[i]).getKey().equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Leaf find(Object key, int keyHash, int shift) {
+            int index = (keyHash == hash) ? indexOf(key) : -1;
+            return (index >= 0) ? (Leaf) slots[index] : null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, boolean[] added) {
+            if (leaf.hash != hash) {
+                Node split = new BitmapNode(BitmapNode.bit(hash, shift), new Object[] {this});
+                return split.put(leaf, shift, added);
+            }
+            int index = indexOf(leaf.getKey());
+            if (index >= 0) {
+                if (((Leaf) slots[index]).getValue() == leaf.getValue()) {
+                    return this;
+                }
+                Object[] copy = slots.clone();
+                copy[index] = leaf;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, slots.length);
+            copy[slots.length] = leaf;
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node remove(Object key, int keyHash, int shift) {
+            int index = (keyHash == hash) ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, copy.length - index);
+            return new CollisionNode(hash, copy);
+        }
+    }
+
+    private static final class TrieIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] stack = new Object[MAX_DEPTH + 1][];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+        private Leaf next;
+
+        TrieIterator(Node root) {
+            stack[0] = root.slots;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] slots = stack[depth];
+                if (positions[depth] == slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = slots[positions[depth]++];
+                if (slot instanceof Leaf) {
+                    next = (Leaf) slot;
+                    return;
+                }
+                depth++;
+                stack[depth] = ((Node) slot).slots;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf current = next;
+            advance();
+            return (Map.Entry<K, V>) (Map.Entry<?, ?>) current;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class IdempotencyCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Outcome> outcomes;
+    private long hits;
+    private long misses;
+
+    public IdempotencyCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Idempotency cache size and TTL must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.outcomes = new LinkedHashMap<String, Outcome>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Outcome> eldest) {
+                return size() > IdempotencyCache.this.maxEntries && !eldest.getValue().pending;
+            }
+        };
+    }
+
+    private static class Outcome {
+        static final Outcome PENDING = new Outcome(0, false, true);
+
+        final long completedAt;
+        final boolean succeeded;
+        final boolean pending;
+
+        Outcome(long completedAt, boolean succeeded, boolean pending) {
+            this.completedAt = completedAt;
+            this.succeeded = succeeded;
+            this.pending = pending;
+        }
+    }
+
+    /**
+     * Claims a key for the caller, or returns the outcome of the request that already ran with
+     * it. A key claimed by another thread is waited on until that request records its outcome
+     * or releases the claim, so two copies of the same request can never both run. When this
+     * returns null the caller owns the key and must call {@link #recordOutcome} or
+     * {@link #release}.
+     */
+    public synchronized Boolean claim(String key) {
+        while (true) {
+            long now = System.nanoTime();
+            Outcome outcome = outcomes.get(key);
+            if (outcome == null || (!outcome.pending && now - outcome.completedAt >= ttlNanos)) {
+                misses++;
+                outcomes.remove(key);
+                outcomes.put(key, Outcome.PENDING);
+                return null;
+            }
+            if (!outcome.pending) {
+                hits++;
+                return outcome.succeeded;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Gives up a claim without recording an outcome, so the request can be retried with the
+     * same key.
+     */
+    public synchronized void release(String key) {
+        Outcome outcome = outcomes.get(key);
+        if (outcome != null && outcome.pending) {
+            outcomes.remove(key);
+        }
+        notifyAll();
+    }
+
+    public synchronized void recordOutcome(String key, boolean succeeded) {
+        long now = System.nanoTime();
+        expireOldest(now);
+        outcomes.remove(key);
+        outcomes.put(key, new Outcome(now, succeeded, false));
+        notifyAll();
+    }
+
+    private void expireOldest(long now) {
+        Iterator<Outcome> oldest = outcomes.values().iterator();
+        while (oldest.hasNext()) {
+            Outcome outcome = oldest.next();
+            if (outcome.pending || now - outcome.completedAt < ttlNanos) {
+                return;
+            }
+            oldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return outcomes.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized String getStatsSummary() {
+        return String.format("entries=%d/%d, duplicateHits=%d, misses=%d", outcomes.size(), maxEntries, hits, misses);
+    }
+}
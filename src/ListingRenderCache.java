@@ -0,0 +1,81 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class ListingRenderCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final LinkedHashMap<String, RenderedListing> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static class RenderedListing {
+        private final long version;
+        private final String text;
+
+        RenderedListing(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+
+    public ListingRenderCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ListingRenderCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.entries = new LinkedHashMap<String, RenderedListing>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RenderedListing> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized String getOrRender(String view, String storeName, long version, Supplier<String> renderer) {
+        String key = view + ":" + storeName;
+        RenderedListing cached = entries.get(key);
+        if (cached != null && cached.version == version) {
+            hits++;
+            return cached.text;
+        }
+        misses++;
+        String text = renderer.get();
+        entries.put(key, new RenderedListing(version, text));
+        return text;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0.0 : (double) hits / lookups;
+    }
+
+    public synchronized String getStatsSummary() {
+        return String.format("entries=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%",
+                entries.size(), hits, misses, evictions, getHitRate() * 100);
+    }
+}
@@ -0,0 +1,391 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class LoadGenerator {
+    private static final String PASSWORD = "load";
+    private static final double INITIAL_BALANCE = 1_000_000;
+    private static final int MAX_IDEMPOTENCY_KEYS = 100_000;
+    private static final long IDEMPOTENCY_KEY_TTL_MILLIS = 60_000;
+
+    public enum Operation {
+        BROWSE, BUY, TOP_UP, REPRICE, RENAME
+    }
+
+    public static class Config {
+        int owners = 10;
+        int storesPerOwner = 5;
+        int gamesPerStore = 50;
+        int customers = 1000;
+        double premiumRatio = 0.2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long operations = 1_000_000;
+        double zipfExponent = 1.0;
+        long seed = System.nanoTime();
+        int shards = 1;
+        EnumMap<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+        Config() {
+            mix.put(Operation.BROWSE, 60);
+            mix.put(Operation.BUY, 20);
+            mix.put(Operation.TOP_UP, 10);
+            mix.put(Operation.REPRICE, 8);
+            mix.put(Operation.RENAME, 2);
+        }
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i < args.length - 1; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--owners": config.owners = Integer.parseInt(value); break;
+                    case "--stores-per-owner": config.storesPerOwner = Integer.parseInt(value); break;
+                    case "--games-per-store": config.gamesPerStore = Integer.parseInt(value); break;
+                    case "--customers": config.customers = Integer.parseInt(value); break;
+                    case "--premium-ratio": config.premiumRatio = Double.parseDouble(value); break;
+                    case "--threads": config.threads = Integer.parseInt(value); break;
+                    case "--operations": config.operations = Long.parseLong(value); break;
+                    case "--zipf": config.zipfExponent = Double.parseDouble(value); break;
+                    case "--seed": config.seed = Long.parseLong(value); break;
+                    case "--shards": config.shards = Integer.parseInt(value); break;
+                    case "--mix": config.mix = parseMix(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (config.owners < 1 || config.storesPerOwner < 1 || config.gamesPerStore < 1 || config.customers < 1 || config.threads < 1) {
+                throw new IllegalArgumentException("Counts must be positive");
+            }
+            if (!(config.premiumRatio >= 0 && config.premiumRatio <= 1)) {
+                throw new IllegalArgumentException("Premium ratio must be between 0 and 1: " + config.premiumRatio);
+            }
+            return config;
+        }
+
+        private static EnumMap<Operation, Integer> parseMix(String value) {
+            EnumMap<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                mix.put(operation, 0);
+            }
+            for (String part : value.split(",")) {
+                String[] pair = part.split("=", -1);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Mix entries must look like operation=weight: " + part);
+                }
+                Operation operation;
+                try {
+                    operation = Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown operation in mix: " + pair[0].trim());
+                }
+                int weight = Integer.parseInt(pair[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Mix weights must not be negative: " + part);
+                }
+                mix.put(operation, weight);
+            }
+            return mix;
+        }
+    }
+
+    static class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int size, double exponent) {
+            this.cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1.0 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < size; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min((index >= 0) ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * A fixed-size log-linear histogram of latencies: each power of two is split into
+     * {@code SUB_BUCKETS} linear buckets, so percentiles are within about 3% at any scale and
+     * recording never allocates.
+     */
+    private static class LatencyRecorder {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long max;
+        private long errors;
+
+        void record(long latency, boolean success) {
+            counts[bucket(Math.max(0, latency))]++;
+            count++;
+            max = Math.max(max, latency);
+            if (!success) {
+                errors++;
+            }
+        }
+
+        void add(LatencyRecorder other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+            errors += other.errors;
+        }
+
+        private static int bucket(long value) {
+            if (value < 2 * SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+
+        private static long highestValueIn(int bucket) {
+            if (bucket < 2 * SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        double percentileMicros(double percentile) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max) / 1000.0;
+                }
+            }
+            return max / 1000.0;
+        }
+    }
+
+    private final Config config;
+    private final UserManager userManager = new UserManager();
+    private final StoreService storeService;
+    private final List<StoreOwner> owners = new ArrayList<>();
+    private final List<Customer> customers = new ArrayList<>();
+    private AtomicReferenceArray<String> storeNames;
+    private final AtomicLong renameSequence = new AtomicLong();
+
+    public LoadGenerator(Config config) {
+        this.config = config;
+        this.storeService = (config.shards > 1) ? new ShardedStoreService(config.shards) : new StoreService();
+        this.userManager.setRecommender(new CoPurchaseRecommender(32, 20));
+        this.userManager.setIdempotencyCache(new IdempotencyCache(MAX_IDEMPOTENCY_KEYS, IDEMPOTENCY_KEY_TTL_MILLIS));
+    }
+
+    private void setUp() {
+        SplittableRandom random = new SplittableRandom(config.seed);
+        int storeCount = config.owners * config.storesPerOwner;
+        storeNames = new AtomicReferenceArray<>(storeCount);
+        for (int o = 0; o < config.owners; o++) {
+            userManager.registerUser("owner" + o, PASSWORD, UserRole.STORE_OWNER);
+            owners.add((StoreOwner) userManager.loginUser("owner" + o, PASSWORD));
+        }
+        for (int s = 0; s < storeCount; s++) {
+            String storeName = "store" + s;
+            StoreOwner owner = owners.get(s % config.owners);
+            owner.createStore(storeName, storeService);
+            storeNames.set(s, storeName);
+            for (int g = 0; g < config.gamesPerStore; g++) {
+                owner.addGameToStore(storeName, "game" + g, 5 + random.nextInt(60), "genre" + random.nextInt(8), storeService);
+            }
+        }
+
+        List<EncodedAccount> accounts = new ArrayList<>(config.customers);
+        for (int c = 0; c < config.customers; c++) {
+            boolean premium = random.nextDouble() < config.premiumRatio;
+            accounts.add(new EncodedAccount("customer" + c, PASSWORD,
+                    premium ? UserRole.PREMIUM_CUSTOMER : UserRole.CUSTOMER, premium ? 0.1 : 0.0));
+        }
+        userManager.provisionAccounts(accounts);
+        for (int c = 0; c < config.customers; c++) {
+            Customer customer = (Customer) userManager.loginUser("customer" + c, PASSWORD);
+            customer.topUp(INITIAL_BALANCE);
+            customers.add(customer);
+        }
+    }
+
+    public void run() throws InterruptedException {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long elapsedNanos;
+        List<EnumMap<Operation, LatencyRecorder>> perThread = new ArrayList<>();
+        try {
+            setUp();
+            Operation[] schedule = buildSchedule();
+            ZipfSampler storePopularity = new ZipfSampler(storeNames.length(), config.zipfExponent);
+            ZipfSampler gamePopularity = new ZipfSampler(config.gamesPerStore, config.zipfExponent);
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < config.threads; t++) {
+                EnumMap<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+                for (Operation operation : Operation.values()) {
+                    recorders.put(operation, new LatencyRecorder());
+                }
+                perThread.add(recorders);
+                long quota = config.operations / config.threads + ((t < config.operations % config.threads) ? 1 : 0);
+                SplittableRandom random = new SplittableRandom(config.seed + 1 + t);
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long i = 0; i < quota; i++) {
+                        Operation operation = schedule[random.nextInt(schedule.length)];
+                        long begin = System.nanoTime();
+                        boolean success;
+                        try {
+                            success = execute(operation, random, storePopularity, gamePopularity);
+                        } catch (RuntimeException e) {
+                            success = false;
+                        }
+                        recorders.get(operation).record(System.nanoTime() - begin, success);
+                    }
+                }, "load-generator-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            elapsedNanos = System.nanoTime() - begin;
+        } finally {
+            System.setOut(console);
+        }
+        printReport(perThread, elapsedNanos);
+    }
+
+    private Operation[] buildSchedule() {
+        List<Operation> schedule = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : config.mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                schedule.add(entry.getKey());
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix must contain at least one operation");
+        }
+        return schedule.toArray(new Operation[0]);
+    }
+
+    private static String requestId(SplittableRandom random) {
+        return Long.toHexString(random.nextLong());
+    }
+
+    private boolean execute(Operation operation, SplittableRandom random, ZipfSampler storePopularity, ZipfSampler gamePopularity) {
+        int storeIndex = storePopularity.sample(random);
+        String storeName = storeNames.get(storeIndex);
+        String gameName = "game" + gamePopularity.sample(random);
+        switch (operation) {
+            case BROWSE: {
+                StoreService readView = storeService.getReadView();
+                Map<String, Game> games = readView.getGamesInStore(storeName);
+                double total = 0;
+                for (Game game : games.values()) {
+                    total += game.getPrice();
+                }
+                return !games.isEmpty() && total >= 0;
+            }
+            case BUY: {
+                Customer customer = customers.get(random.nextInt(customers.size()));
+                return customer.buyGame(storeName, gameName, storeService, requestId(random));
+            }
+            case TOP_UP: {
+                Customer customer = customers.get(random.nextInt(customers.size()));
+                return customer.topUp(10 + random.nextInt(90), requestId(random));
+            }
+            case REPRICE: {
+                if (storeService.getGameFromStore(storeName, gameName) == null) {
+                    return false;
+                }
+                storeService.editGamePrice(storeName, gameName, 5 + random.nextInt(60));
+                return true;
+            }
+            case RENAME: {
+                StoreOwner owner = owners.get(storeIndex % config.owners);
+                String newName = "store" + storeIndex + "-r" + renameSequence.incrementAndGet();
+                synchronized (owner) {
+                    if (!storeService.renameStore(storeName, newName, owner)) {
+                        return false;
+                    }
+                }
+                return storeNames.compareAndSet(storeIndex, storeName, newName);
+            }
+            default:
+                return false;
+        }
+    }
+
+    private void printReport(List<EnumMap<Operation, LatencyRecorder>> perThread, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long totalOperations = 0;
+        System.out.println("\n--- Load Generator Report (seed " + config.seed + ") ---");
+        System.out.printf("%d owners, %d stores, %d games/store, %d customers (%.0f%% premium), %d threads, zipf %.2f%n",
+                config.owners, storeNames.length(), config.gamesPerStore, config.customers, config.premiumRatio * 100,
+                config.threads, config.zipfExponent);
+        System.out.printf("%-8s %10s %8s %12s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (Operation operation : Operation.values()) {
+            LatencyRecorder merged = new LatencyRecorder();
+            for (EnumMap<Operation, LatencyRecorder> recorders : perThread) {
+                merged.add(recorders.get(operation));
+            }
+            if (merged.count == 0) {
+                continue;
+            }
+            totalOperations += merged.count;
+            System.out.printf("%-8s %10d %8d %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n", operation.name().toLowerCase(Locale.ROOT),
+                    merged.count, merged.errors, merged.count / seconds, merged.percentileMicros(50), merged.percentileMicros(90),
+                    merged.percentileMicros(99), merged.percentileMicros(99.9), merged.max / 1000.0);
+        }
+        System.out.printf("Total: %d operations in %.3f s (%.0f ops/s)%n", totalOperations, seconds, totalOperations / seconds);
+    }
+
+    public static void main(String[] args) {
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid load generator option: " + e.getMessage());
+            System.out.println("Usage: LoadGenerator [--owners n] [--stores-per-owner n] [--games-per-store n] [--customers n] "
+                    + "[--premium-ratio r] [--threads n] [--operations n] [--zipf s] [--seed n] [--shards n] "
+                    + "[--mix browse=60,buy=20,top_up=10,reprice=8,rename=2]");
+            return;
+        }
+        try {
+            new LoadGenerator(config).run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Load generation interrupted.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid load generator option: " + e.getMessage());
+        }
+    }
+}
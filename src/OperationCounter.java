@@ -0,0 +1,24 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class OperationCounter implements ChangeEventHandler {
+    private static final ChangeEvent.Type[] TYPES = ChangeEvent.Type.values();
+
+    private final AtomicLongArray counts = new AtomicLongArray(TYPES.length);
+
+    @Override
+    public void onEvent(ChangeEvent event, boolean endOfBatch) {
+        counts.incrementAndGet(event.getType().ordinal());
+    }
+
+    public long getCount(ChangeEvent.Type type) {
+        return counts.get(type.ordinal());
+    }
+
+    public long[] getCounts() {
+        long[] snapshot = new long[TYPES.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+}
@@ -4,8 +4,7 @@ public class PremiumCustomer extends Customer {
     private double discountRate;
 
     public PremiumCustomer(String username, String password, double discountRate) {
-        super(username, password);
-        super.setRole(UserRole.PREMIUM_CUSTOMER); 
+        super(username, password, UserRole.PREMIUM_CUSTOMER);
         setDiscountRate(discountRate);
     }
 
@@ -14,28 +13,32 @@ public class PremiumCustomer extends Customer {
     }
 
     public void setDiscountRate(double discountRate) {
+        this.discountRate = normalizeDiscountRate(discountRate);
+    }
+
+    static double normalizeDiscountRate(double discountRate) {
         if (discountRate < 0 || discountRate >= 1) {
             System.out.println("Warning: Invalid discount rate " + discountRate + ". Setting to 0.1 (10%).");
-            this.discountRate = 0.1;
-        } else {
-            this.discountRate = discountRate;
+            return 0.1;
         }
+        return discountRate;
     }
 
     @Override
-    public void buyGame(String storeName, String gameName, StoreService storeService) {
+    protected boolean completePurchase(String storeName, String gameName, StoreService storeService) {
         Game gameToBuy = storeService.getGameFromStore(storeName, gameName);
 
         if (gameToBuy != null) {
             double discountedPrice = calculateDiscountedPrice(gameToBuy);
             if (super.getBalance() >= discountedPrice) {
-                finalizePremiumPurchase(gameName, storeName, discountedPrice);
+                return finalizePremiumPurchase(gameToBuy, storeName, discountedPrice);
             } else {
                 System.out.println("Insufficient balance for premium purchase!");
             }
         } else {
             System.out.println("Store or game not found!");
         }
+        return false;
     }
 
     private double calculateDiscountedPrice(Game game) {
@@ -46,14 +49,18 @@ public class PremiumCustomer extends Customer {
         return discountedPrice;
     }
 
-    private void finalizePremiumPurchase(String gameName, String storeName, double discountedPrice) {
+    private boolean finalizePremiumPurchase(Game game, String storeName, double discountedPrice) {
+        String gameName = game.getName();
         if (adjustBalance(-discountedPrice)) {
-            super.getOwnedGames().add(gameName);
-            TransactionLogger.logTransaction(getUsername(), "PREMIUM_PURCHASE", discountedPrice, gameName + " from " + storeName);
+            addOwnedGame(gameName);
+            TransactionLogger.logPurchase(getUsername(), getRole(), "PREMIUM_PURCHASE", discountedPrice, storeName, game);
             System.out.println("Premium game '" + gameName + "' purchased successfully from '" + storeName + "'!");
             System.out.println("It has been added to your library. New balance: $" + String.format("%.2f", getBalance()));
+            recommendAfterPurchase(gameName);
+            return true;
         } else {
             System.out.println("Purchase failed during balance adjustment.");
+            return false;
         }
     }
 
@@ -0,0 +1,47 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PriceHistory {
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, PriceSeries>> seriesByStore = new ConcurrentHashMap<>();
+    private final AtomicLong pointCount = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+
+    public void record(String storeName, String gameName, double price, long timeMillis) {
+        long grownBy = seriesByStore.computeIfAbsent(storeName, store -> new ConcurrentHashMap<>())
+                .computeIfAbsent(gameName, game -> new PriceSeries())
+                .record(timeMillis, price);
+        pointCount.incrementAndGet();
+        encodedBytes.addAndGet(grownBy);
+    }
+
+    public void renameStore(String oldName, String newName) {
+        ConcurrentHashMap<String, PriceSeries> series = seriesByStore.remove(oldName);
+        if (series != null) {
+            seriesByStore.put(newName, series);
+        }
+    }
+
+    public PriceSeries getSeries(String storeName, String gameName) {
+        Map<String, PriceSeries> series = seriesByStore.get(storeName);
+        return (series != null) ? series.get(gameName) : null;
+    }
+
+    public double priceAt(String storeName, String gameName, long timeMillis) {
+        PriceSeries series = getSeries(storeName, gameName);
+        return (series != null) ? series.priceAt(timeMillis) : Double.NaN;
+    }
+
+    public double lowestSince(String storeName, String gameName, long fromMillis) {
+        PriceSeries series = getSeries(storeName, gameName);
+        return (series != null) ? series.lowestSince(fromMillis) : Double.NaN;
+    }
+
+    public long getPointCount() {
+        return pointCount.get();
+    }
+
+    public long estimatedBytes() {
+        return encodedBytes.get();
+    }
+}
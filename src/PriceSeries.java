@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * Price changes for one game, packed into chunks of varint-encoded points. Each point is the
+ * zigzag delta-of-delta of its timestamp and the zigzag delta of its price in cents, so a
+ * regular change costs two to four bytes. Chunk headers hold the first point so lookups can
+ * binary search the headers and decode a single chunk, and chunk minimums sit in a segment
+ * tree for range-minimum queries.
+ */
+public class PriceSeries {
+    private static final int POINTS_PER_CHUNK = 64;
+
+    private long[] chunkStartTime = new long[4];
+    private long[] chunkStartPrice = new long[4];
+    private int[] chunkOffset = new int[4];
+    private int chunkCount;
+    private long[] minTree = new long[8];
+    private int treeLeaves = 4;
+
+    private byte[] data = new byte[64];
+    private int dataSize;
+    private int cursor;
+
+    private int pointsInChunk;
+    private long lastTime;
+    private long lastDelta;
+    private long lastPrice;
+    private long chunkMin;
+    private int pointCount;
+
+    public PriceSeries() {
+        Arrays.fill(minTree, Long.MAX_VALUE);
+    }
+
+    /**
+     * Appends a price point and returns how many bytes the series grew by.
+     */
+    public synchronized long record(long timeMillis, double price) {
+        long bytesBefore = estimatedBytes();
+        long cents = Math.round(price * 100);
+        long time = (pointCount > 0) ? Math.max(timeMillis, lastTime) : timeMillis;
+        if (pointCount == 0 || pointsInChunk == POINTS_PER_CHUNK) {
+            startChunk(time, cents);
+        } else {
+            long delta = time - lastTime;
+            writeVarLong(zigzag(delta - lastDelta));
+            writeVarLong(zigzag(cents - lastPrice));
+            lastDelta = delta;
+            pointsInChunk++;
+            chunkMin = Math.min(chunkMin, cents);
+        }
+        lastTime = time;
+        lastPrice = cents;
+        pointCount++;
+        updateMin(chunkCount - 1, chunkMin);
+        return estimatedBytes() - bytesBefore;
+    }
+
+    private void startChunk(long time, long cents) {
+        if (chunkCount == chunkStartTime.length) {
+            int capacity = chunkCount * 2;
+            chunkStartTime = Arrays.copyOf(chunkStartTime, capacity);
+            chunkStartPrice = Arrays.copyOf(chunkStartPrice, capacity);
+            chunkOffset = Arrays.copyOf(chunkOffset, capacity);
+        }
+        chunkStartTime[chunkCount] = time;
+        chunkStartPrice[chunkCount] = cents;
+        chunkOffset[chunkCount] = dataSize;
+        chunkCount++;
+        if (chunkCount > treeLeaves) {
+            growTree();
+        }
+        pointsInChunk = 1;
+        lastDelta = 0;
+        chunkMin = cents;
+    }
+
+    public synchronized int size() {
+        return pointCount;
+    }
+
+    public synchronized double priceAt(long timeMillis) {
+        int chunk = chunkAtOrBefore(timeMillis);
+        if (chunk < 0) {
+            return Double.NaN;
+        }
+        return decodeChunk(chunk, timeMillis)[0] / 100.0;
+    }
+
+    public synchronized double lowestSince(long fromMillis) {
+        if (pointCount == 0) {
+            return Double.NaN;
+        }
+        int first = chunkAtOrBefore(fromMillis);
+        if (first < 0) {
+            return queryMin(0, chunkCount) / 100.0;
+        }
+        long lowest = decodeChunk(first, fromMillis)[1];
+        return Math.min(lowest, queryMin(first + 1, chunkCount)) / 100.0;
+    }
+
+    public synchronized long estimatedBytes() {
+        return dataSize + (long) chunkCount * (Long.BYTES * 2 + Integer.BYTES) + (long) treeLeaves * 2 * Long.BYTES;
+    }
+
+    private int chunkAtOrBefore(long timeMillis) {
+        int low = 0;
+        int high = chunkCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chunkStartTime[middle] <= timeMillis) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Walks one chunk and returns the price in effect at {@code atMillis} and the lowest price
+     * in effect from {@code atMillis} to the end of the chunk.
+     */
+    private long[] decodeChunk(int chunk, long atMillis) {
+        cursor = chunkOffset[chunk];
+        int end = (chunk + 1 < chunkCount) ? chunkOffset[chunk + 1] : dataSize;
+        long time = chunkStartTime[chunk];
+        long price = chunkStartPrice[chunk];
+        long delta = 0;
+        long priceAt = price;
+        long lowest = Long.MAX_VALUE;
+        while (cursor < end) {
+            delta += unzigzag(readVarLong());
+            long nextPrice = price + unzigzag(readVarLong());
+            time += delta;
+            if (time <= atMillis) {
+                priceAt = nextPrice;
+            } else {
+                lowest = Math.min(lowest, nextPrice);
+            }
+            price = nextPrice;
+        }
+        return new long[] {priceAt, Math.min(lowest, priceAt)};
+    }
+
+    private void growTree() {
+        long[] mins = new long[chunkCount];
+        for (int i = 0; i < chunkCount - 1; i++) {
+            mins[i] = minTree[treeLeaves + i];
+        }
+        treeLeaves *= 2;
+        minTree = new long[treeLeaves * 2];
+        Arrays.fill(minTree, Long.MAX_VALUE);
+        for (int i = 0; i < chunkCount - 1; i++) {
+            updateMin(i, mins[i]);
+        }
+    }
+
+    private void updateMin(int leaf, long value) {
+        int node = treeLeaves + leaf;
+        minTree[node] = value;
+        for (node >>= 1; node > 0; node >>= 1) {
+            minTree[node] = Math.min(minTree[2 * node], minTree[2 * node + 1]);
+        }
+    }
+
+    private long queryMin(int from, int to) {
+        long min = Long.MAX_VALUE;
+        for (int low = from + treeLeaves, high = to + treeLeaves; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                min = Math.min(min, minTree[low++]);
+            }
+            if ((high & 1) == 1) {
+                min = Math.min(min, minTree[--high]);
+            }
+        }
+        return min;
+    }
+
+    private void writeVarLong(long value) {
+        if (dataSize + 10 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[dataSize++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[dataSize++] = (byte) value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[cursor++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Map;
+
+public class ReadOnlyStoreService extends StoreService {
+
+    void apply(StoreMutation mutation) {
+        applyMutation(mutation);
+    }
+
+    void seedStore(String storeName, String ownerUsername, Map<String, Game> games) {
+        attachStore(storeName, ownerUsername, games);
+    }
+
+    private static void rejectWrite(String operation) {
+        System.out.println("Error: '" + operation + "' is not allowed on a read-only replica.");
+    }
+
+    @Override
+    public boolean addStore(String storeName, String ownerUsername) {
+        rejectWrite("addStore");
+        return false;
+    }
+
+    @Override
+    public void addGameToStore(String storeName, Game game) {
+        rejectWrite("addGameToStore");
+    }
+
+    @Override
+    public boolean renameStore(String oldName, String newName, StoreOwner owner) {
+        rejectWrite("renameStore");
+        return false;
+    }
+
+    @Override
+    public void editGamePrice(String storeName, String gameName, double newPrice) {
+        rejectWrite("editGamePrice");
+    }
+
+    @Override
+    public void editGameGenre(String storeName, String gameName, String newGenre) {
+        rejectWrite("editGameGenre");
+    }
+
+    @Override
+    public void removeGame(String storeName, String gameName) {
+        rejectWrite("removeGame");
+    }
+}
@@ -19,7 +19,7 @@ public class RegisterAction implements MenuAction {
         String username = scanner.nextLine();
         System.out.print("Enter password: ");
         String password = scanner.nextLine();
-        System.out.print("Register as (customer/premium_customer/store_owner/admin): "); 
+        System.out.print("Register as (customer/premium_customer/store_owner): "); 
         String roleString = scanner.nextLine();
 
         try {
@@ -30,7 +30,7 @@ public class RegisterAction implements MenuAction {
                 userManager.registerUser(username, password, role); 
             }
         } catch (IllegalArgumentException e) {
-            System.out.println("Invalid role: " + roleString + ". Please choose from customer, premium_customer, store_owner, or admin.");
+            System.out.println("Invalid role: " + roleString + ". Please choose from customer, premium_customer, or store_owner.");
         }
     }
 
@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The per-user index of one sealed transaction segment, written next to the segment so startup
+ * maps it instead of replaying the log. A directory sorted by username hash points at each
+ * user's run of entries; an entry is the record's timestamp, its offset in the segment and the
+ * id of its type, so paging and type filtering never have to read the records they skip.
+ */
+public class SegmentIndex {
+    private static final int MAGIC = 0x53494458;
+    private static final int HEADER_BYTES = 20;
+    private static final int TYPE_BYTES = 8;
+    private static final int DIRECTORY_BYTES = 20;
+    private static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer buffer;
+    private final int userCount;
+    private final String[] types;
+    private final int directoryStart;
+    private final int namesStart;
+    private final int entriesStart;
+
+    /** One user's entries in this segment, oldest first. */
+    public static class Run {
+        private final int firstEntry;
+        private final int count;
+
+        Run(int firstEntry, int count) {
+            this.firstEntry = firstEntry;
+            this.count = count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private SegmentIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a segment index");
+        }
+        this.buffer = buffer;
+        this.userCount = buffer.getInt(4);
+        int typeCount = buffer.getInt(8);
+        int namesBytes = buffer.getInt(16);
+        this.directoryStart = HEADER_BYTES + typeCount * TYPE_BYTES;
+        this.namesStart = directoryStart + userCount * DIRECTORY_BYTES;
+        this.entriesStart = namesStart + namesBytes;
+        if ((long) entriesStart + (long) buffer.getInt(12) * ENTRY_BYTES != buffer.limit()) {
+            throw new IOException("Segment index is truncated");
+        }
+        this.types = new String[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            types[i] = name(buffer.getInt(HEADER_BYTES + i * TYPE_BYTES), buffer.getInt(HEADER_BYTES + i * TYPE_BYTES + 4));
+        }
+    }
+
+    public static Path pathFor(Path directory, String logName, long segment, int generation) {
+        return directory.resolve(String.format("%s-%012d-g%03d.idx", logName, segment, generation));
+    }
+
+    public static SegmentIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SegmentIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private String name(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.duplicate().position(namesStart + offset).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean nameEquals(int offset, int length, byte[] key) {
+        if (length != key.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(namesStart + offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Run find(String username) {
+        int hash = username.hashCode();
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = buffer.getInt(directoryStart + middle * DIRECTORY_BYTES);
+            if (found < hash) {
+                low = middle + 1;
+            } else if (found > hash) {
+                high = middle - 1;
+            } else {
+                low = middle;
+                while (low > 0 && buffer.getInt(directoryStart + (low - 1) * DIRECTORY_BYTES) == hash) {
+                    low--;
+                }
+                for (int i = low; i < userCount && buffer.getInt(directoryStart + i * DIRECTORY_BYTES) == hash; i++) {
+                    int slot = directoryStart + i * DIRECTORY_BYTES;
+                    if (nameEquals(buffer.getInt(slot + 4), buffer.getInt(slot + 8), key)) {
+                        return new Run(buffer.getInt(slot + 12), buffer.getInt(slot + 16));
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public long timestamp(Run run, int ordinal) {
+        return buffer.getLong(entriesStart + (run.firstEntry + ordinal) * ENTRY_BYTES);
+    }
+
+    public long offset(Run run, int ordinal) {
+        return buffer.getInt(entriesStart + (run.firstEntry + ordinal) * ENTRY_BYTES + 8) & 0xFFFFFFFFL;
+    }
+
+    public int typeId(Run run, int ordinal) {
+        return buffer.getInt(entriesStart + (run.firstEntry + ordinal) * ENTRY_BYTES + 12);
+    }
+
+    /**
+     * Returns, for each type id in this segment, whether it is one of the wanted types.
+     */
+    public boolean[] typeMask(Iterable<String> wanted) {
+        boolean[] mask = new boolean[types.length];
+        for (String type : wanted) {
+            for (int i = 0; i < types.length; i++) {
+                mask[i] |= types[i].equals(type);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Collects entries while a segment is scanned and writes them out as an index file.
+     */
+    public static class Builder {
+        private final Map<String, Entries> users = new HashMap<>();
+        private final Map<String, Integer> typeIds = new LinkedHashMap<>();
+        private int entryCount;
+
+        private static class Entries {
+            long[] timestamps = new long[4];
+            long[] offsets = new long[4];
+            int[] typeIds = new int[4];
+            int count;
+        }
+
+        public void add(String username, long timestampMillis, long offset, String type) {
+            Entries entries = users.computeIfAbsent(username, name -> new Entries());
+            if (entries.count == entries.timestamps.length) {
+                int capacity = entries.count * 2;
+                entries.timestamps = Arrays.copyOf(entries.timestamps, capacity);
+                entries.offsets = Arrays.copyOf(entries.offsets, capacity);
+                entries.typeIds = Arrays.copyOf(entries.typeIds, capacity);
+            }
+            entries.timestamps[entries.count] = timestampMillis;
+            entries.offsets[entries.count] = offset;
+            entries.typeIds[entries.count] = typeIds.computeIfAbsent(type, t -> typeIds.size());
+            entries.count++;
+            entryCount++;
+        }
+
+        /**
+         * Writes the index next to its segment and maps it back in.
+         */
+        public SegmentIndex write(Path file) throws IOException {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, encode().array());
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return open(file);
+        }
+
+        /**
+         * Keeps the index on the heap, for when it could not be written out.
+         */
+        public SegmentIndex inMemory() throws IOException {
+            return new SegmentIndex(encode());
+        }
+
+        private ByteBuffer encode() {
+            List<String> usernames = new ArrayList<>(users.keySet());
+            usernames.sort((a, b) -> Integer.compare(a.hashCode(), b.hashCode()));
+            List<byte[]> names = new ArrayList<>();
+            int namesBytes = 0;
+            for (String type : typeIds.keySet()) {
+                byte[] bytes = type.getBytes(StandardCharsets.UTF_8);
+                names.add(bytes);
+                namesBytes += bytes.length;
+            }
+            for (String username : usernames) {
+                byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+                names.add(bytes);
+                namesBytes += bytes.length;
+            }
+
+            ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + typeIds.size() * TYPE_BYTES + usernames.size() * DIRECTORY_BYTES
+                    + namesBytes + entryCount * ENTRY_BYTES);
+            out.putInt(MAGIC).putInt(usernames.size()).putInt(typeIds.size()).putInt(entryCount).putInt(namesBytes);
+            int nameOffset = 0;
+            for (int i = 0; i < typeIds.size(); i++) {
+                out.putInt(nameOffset).putInt(names.get(i).length);
+                nameOffset += names.get(i).length;
+            }
+            int firstEntry = 0;
+            for (int i = 0; i < usernames.size(); i++) {
+                byte[] name = names.get(typeIds.size() + i);
+                Entries entries = users.get(usernames.get(i));
+                out.putInt(usernames.get(i).hashCode()).putInt(nameOffset).putInt(name.length).putInt(firstEntry).putInt(entries.count);
+                nameOffset += name.length;
+                firstEntry += entries.count;
+            }
+            for (byte[] name : names) {
+                out.put(name);
+            }
+            for (String username : usernames) {
+                Entries entries = users.get(username);
+                for (int i = 0; i < entries.count; i++) {
+                    out.putLong(entries.timestamps[i]).putInt((int) entries.offsets[i]).putInt(entries.typeIds[i]);
+                }
+            }
+            out.flip();
+            return out;
+        }
+    }
+}
@@ -0,0 +1,601 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SegmentedLog implements Runnable {
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+    private static final int MAX_CACHED_FOOTERS = 64;
+    private static final int COMPACTION_FAN_IN = 4;
+    private static final int COMPACTION_SIZE_RATIO = 2;
+    private static final Append SHUTDOWN = new Append(-1, new byte[0]);
+
+    private final Path directory;
+    private final String name;
+    private final Pattern segmentPattern;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final Function<byte[], String> compactionKey;
+    private final BlockingQueue<Append> pendingWrites;
+    private final ExecutorService maintenance;
+    private final Thread writer;
+    private final TreeMap<Long, Integer> sealedGenerations;
+    private final AtomicLong bytesReclaimed;
+    private final AtomicLong compactionRuns;
+    private final LinkedHashMap<Path, CompressedSegment> footers;
+    private volatile IOException failure;
+    private volatile BiConsumer<Long, Integer> sealListener;
+    private long activeSegment;
+    private long activeBytes;
+    private long activeOpenedAt;
+    private long appended;
+    private volatile long durable;
+    private long durableEnd;
+    private boolean closed;
+
+    private static class Append {
+        private final long segment;
+        private final byte[] data;
+
+        Append(long segment, byte[] data) {
+            this.segment = segment;
+            this.data = data;
+        }
+    }
+
+    public SegmentedLog(Path directory, String name, long maxSegmentBytes, long maxSegmentAgeMillis,
+                        Function<byte[], String> compactionKey) throws IOException {
+        if (maxSegmentBytes <= 0 || maxSegmentBytes > OFFSET_MASK) {
+            throw new IllegalArgumentException("Segment size must be between 1 byte and 4 GiB: " + maxSegmentBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.name = name;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d{12})-g(\\d{3})\\.seg(z)?");
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        this.compactionKey = compactionKey;
+        this.pendingWrites = new LinkedBlockingQueue<>();
+        this.sealedGenerations = new TreeMap<>();
+        this.bytesReclaimed = new AtomicLong();
+        this.compactionRuns = new AtomicLong();
+        this.footers = new LinkedHashMap<Path, CompressedSegment>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, CompressedSegment> eldest) {
+                return size() > MAX_CACHED_FOOTERS;
+            }
+        };
+        this.maintenance = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, name + "-log-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        loadSegments();
+        this.activeSegment = sealedGenerations.isEmpty() ? 0 : sealedGenerations.lastKey() + 1;
+        this.activeOpenedAt = System.currentTimeMillis();
+        this.durableEnd = position(activeSegment, 0, 0);
+        for (Long segment : new ArrayList<>(sealedGenerations.keySet())) {
+            maintenance.submit(() -> compress(segment));
+        }
+        scheduleCompaction();
+
+        this.writer = new Thread(this, name + "-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static long segmentOf(long position) {
+        return position >>> 40;
+    }
+
+    public static int generationOf(long position) {
+        return (int) ((position >>> 32) & 0xFF);
+    }
+
+    public static long offsetOf(long position) {
+        return position & OFFSET_MASK;
+    }
+
+    public static long position(long segment, int generation, long offset) {
+        return (segment << 40) | ((long) generation << 32) | offset;
+    }
+
+    private Path segmentPath(long segment, int generation, boolean compressed) {
+        return directory.resolve(String.format("%s-%012d-g%03d.seg%s", name, segment, generation, compressed ? "z" : ""));
+    }
+
+    private void loadSegments() throws IOException {
+        Map<Long, List<Path>> stale = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long segment = Long.parseLong(matcher.group(1));
+                int generation = Integer.parseInt(matcher.group(2));
+                Integer known = sealedGenerations.get(segment);
+                if (known == null || generation > known) {
+                    sealedGenerations.put(segment, generation);
+                }
+                stale.computeIfAbsent(segment, s -> new ArrayList<>()).add(file);
+            }
+        }
+        for (Map.Entry<Long, List<Path>> entry : stale.entrySet()) {
+            int current = sealedGenerations.get(entry.getKey());
+            for (Path file : entry.getValue()) {
+                Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(2)) != current) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a record and returns its position. Throws once the writer has failed: positions
+     * handed out for a batch that never reached disk cannot be honoured, so the log stops
+     * accepting records rather than handing out more of them.
+     */
+    public long append(byte[] data) {
+        synchronized (this) {
+            if (failure != null) {
+                throw new UncheckedIOException("The " + name + " log is no longer writable", failure);
+            }
+            long now = System.currentTimeMillis();
+            boolean full = activeBytes + 4 + data.length > maxSegmentBytes;
+            boolean expired = now - activeOpenedAt >= maxSegmentAgeMillis;
+            if (activeBytes > 0 && (full || expired)) {
+                activeSegment++;
+                activeBytes = 0;
+                activeOpenedAt = now;
+            }
+            long position = position(activeSegment, 0, activeBytes);
+            activeBytes += 4 + data.length;
+            appended++;
+            pendingWrites.add(new Append(activeSegment, data));
+            return position;
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Append> batch = new ArrayList<>();
+        DataOutputStream out = null;
+        long openSegment = -1;
+        long openOffset = 0;
+        boolean shuttingDown = false;
+        while (!shuttingDown) {
+            try {
+                batch.add(pendingWrites.take());
+                pendingWrites.drainTo(batch);
+                long written = 0;
+                for (Append append : batch) {
+                    if (append == SHUTDOWN) {
+                        shuttingDown = true;
+                        continue;
+                    }
+                    if (append.segment != openSegment) {
+                        if (out != null) {
+                            out.close();
+                            sealSegment(openSegment);
+                        }
+                        openSegment = append.segment;
+                        openOffset = 0;
+                        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentPath(openSegment, 0, false),
+                                StandardOpenOption.CREATE, StandardOpenOption.APPEND), IO_BUFFER_BYTES));
+                    }
+                    out.writeInt(append.data.length);
+                    out.write(append.data);
+                    openOffset += 4 + append.data.length;
+                    written++;
+                }
+                if (out != null) {
+                    out.flush();
+                }
+                batch.clear();
+                synchronized (this) {
+                    durable += written;
+                    durableEnd = position(openSegment, 0, openOffset);
+                    notifyAll();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Error: could not write " + name + " log segment: " + e.getMessage());
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                shuttingDown = true;
+            }
+        }
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error: could not close " + name + " log segment: " + e.getMessage());
+        }
+    }
+
+    private void sealSegment(long segment) {
+        synchronized (sealedGenerations) {
+            sealedGenerations.put(segment, 0);
+        }
+        BiConsumer<Long, Integer> listener = sealListener;
+        if (listener != null) {
+            maintenance.submit(() -> listener.accept(segment, 0));
+        }
+        maintenance.submit(() -> compress(segment));
+        scheduleCompaction();
+    }
+
+    private void scheduleCompaction() {
+        if (compactionKey != null) {
+            maintenance.submit(this::compact);
+        }
+    }
+
+    private void compress(long segment) {
+        int generation;
+        synchronized (sealedGenerations) {
+            Integer known = sealedGenerations.get(segment);
+            if (known == null) {
+                return;
+            }
+            generation = known;
+        }
+        Path source = segmentPath(segment, generation, false);
+        Path target = segmentPath(segment, generation, true);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (!Files.exists(source)) {
+                return;
+            }
+            try (CompressedSegment.Writer out = new CompressedSegment.Writer(temp)) {
+                forEachRecord(segment, generation, (position, data) -> appendTo(out, data));
+            }
+            long before = Files.size(source);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(source);
+            bytesReclaimed.addAndGet(before - Files.size(target));
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: could not compress " + source.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private static void appendTo(CompressedSegment.Writer out, byte[] data) {
+        try {
+            out.append(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Merges the newest run of similarly sized sealed segments into one, keeping only the latest
+     * record for each compaction key within the run. Older records for a key that are left in
+     * earlier segments are dropped when those segments join a later merge, so each record is
+     * rewritten a logarithmic number of times rather than on every seal. The first pass remembers
+     * the position of each key's latest record; the second streams the run again and copies the
+     * survivors, so only the keys are held in memory.
+     */
+    private void compact() {
+        TreeMap<Long, Integer> segments = compactionRun();
+        if (segments == null) {
+            return;
+        }
+        long lastSegment = segments.lastKey();
+        int generation = (segments.get(lastSegment) + 1) & 0xFF;
+        Path target = segmentPath(lastSegment, generation, true);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Map<String, Long> latest = new HashMap<>();
+            long inputBytes = 0;
+            for (Map.Entry<Long, Integer> segment : segments.entrySet()) {
+                Path file = existingPath(segment.getKey(), segment.getValue());
+                if (file == null) {
+                    continue;
+                }
+                inputBytes += Files.size(file);
+                forEachRecord(segment.getKey(), segment.getValue(), (position, data) -> {
+                    String key = compactionKey.apply(data);
+                    if (key != null) {
+                        latest.put(key, position);
+                    }
+                });
+            }
+
+            try (CompressedSegment.Writer out = new CompressedSegment.Writer(temp)) {
+                for (Map.Entry<Long, Integer> segment : segments.entrySet()) {
+                    forEachRecord(segment.getKey(), segment.getValue(), (position, data) -> {
+                        String key = compactionKey.apply(data);
+                        if (key == null || latest.get(key) == (long) position) {
+                            appendTo(out, data);
+                        }
+                    });
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            synchronized (sealedGenerations) {
+                for (Map.Entry<Long, Integer> segment : segments.entrySet()) {
+                    sealedGenerations.remove(segment.getKey());
+                }
+                sealedGenerations.put(lastSegment, generation);
+            }
+            for (Map.Entry<Long, Integer> segment : segments.entrySet()) {
+                Files.deleteIfExists(segmentPath(segment.getKey(), segment.getValue(), false));
+                Path compressed = segmentPath(segment.getKey(), segment.getValue(), true);
+                Files.deleteIfExists(compressed);
+                synchronized (footers) {
+                    footers.remove(compressed);
+                }
+            }
+            bytesReclaimed.addAndGet(inputBytes - Files.size(target));
+            compactionRuns.incrementAndGet();
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: could not compact " + name + " log: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // the next compaction overwrites it
+            }
+        }
+    }
+
+    /**
+     * Picks the newest sealed segments to merge: walking back from the newest, an older segment
+     * joins while it is no more than {@link #COMPACTION_SIZE_RATIO} times the size of the newer
+     * ones already chosen. Returns null until at least {@link #COMPACTION_FAN_IN} segments qualify.
+     */
+    private TreeMap<Long, Integer> compactionRun() {
+        TreeMap<Long, Integer> sealed;
+        synchronized (sealedGenerations) {
+            sealed = new TreeMap<>(sealedGenerations);
+        }
+        TreeMap<Long, Integer> run = new TreeMap<>();
+        long runBytes = 0;
+        for (Map.Entry<Long, Integer> segment : sealed.descendingMap().entrySet()) {
+            Path file = existingPath(segment.getKey(), segment.getValue());
+            long bytes;
+            try {
+                bytes = (file != null) ? Files.size(file) : 0;
+            } catch (IOException e) {
+                bytes = 0;
+            }
+            if (!run.isEmpty() && bytes > COMPACTION_SIZE_RATIO * runBytes) {
+                break;
+            }
+            run.put(segment.getKey(), segment.getValue());
+            runBytes += bytes;
+        }
+        return (run.size() >= COMPACTION_FAN_IN) ? run : null;
+    }
+
+    private Path existingPath(long segment, int generation) {
+        Path plain = segmentPath(segment, generation, false);
+        if (Files.exists(plain)) {
+            return plain;
+        }
+        Path compressed = segmentPath(segment, generation, true);
+        return Files.exists(compressed) ? compressed : null;
+    }
+
+    private CompressedSegment footerOf(Path file, FileChannel channel) throws IOException {
+        synchronized (footers) {
+            CompressedSegment footer = footers.get(file);
+            if (footer != null) {
+                return footer;
+            }
+        }
+        CompressedSegment footer = CompressedSegment.open(channel);
+        synchronized (footers) {
+            footers.put(file, footer);
+        }
+        return footer;
+    }
+
+    /**
+     * Streams the records of one sealed segment, whether it is still plain or already compressed.
+     */
+    public void forEachRecord(long segment, int generation, BiConsumer<Long, byte[]> consumer) throws IOException {
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(segmentPath(segment, generation, false)), IO_BUFFER_BYTES))) {
+            while (true) {
+                int length = in.readInt();
+                byte[] data = new byte[length];
+                in.readFully(data);
+                consumer.accept(position(segment, generation, offset), data);
+                offset += 4 + length;
+            }
+        } catch (EOFException e) {
+            return;
+        } catch (NoSuchFileException e) {
+            Path file = segmentPath(segment, generation, true);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                footerOf(file, channel).forEachRecord(channel,
+                        (logicalOffset, data) -> consumer.accept(position(segment, generation, logicalOffset), data));
+            }
+        }
+    }
+
+    /**
+     * Registers a callback run on the maintenance thread each time the writer seals a segment,
+     * before the segment is compressed.
+     */
+    public void setSealListener(BiConsumer<Long, Integer> sealListener) {
+        this.sealListener = sealListener;
+    }
+
+    public TreeMap<Long, Integer> getSealedSegments() {
+        synchronized (sealedGenerations) {
+            return new TreeMap<>(sealedGenerations);
+        }
+    }
+
+    public void recover(BiConsumer<Long, byte[]> consumer) throws IOException {
+        Map<Long, Integer> segments;
+        synchronized (sealedGenerations) {
+            segments = new TreeMap<>(sealedGenerations);
+        }
+        for (Map.Entry<Long, Integer> segment : segments.entrySet()) {
+            try {
+                forEachRecord(segment.getKey(), segment.getValue(), consumer);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Returns the record at a position, or null if it is no longer on disk (compacted away, or
+     * lost when the writer failed).
+     */
+    public byte[] read(long position) throws IOException {
+        awaitDurable(position);
+        long segment = segmentOf(position);
+        int generation = generationOf(position);
+        long offset = offsetOf(position);
+        try (FileChannel channel = FileChannel.open(segmentPath(segment, generation, false), StandardOpenOption.READ)) {
+            if (offset + 4 > channel.size()) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(4);
+            readFully(channel, header, offset);
+            ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+            readFully(channel, body, offset + 4);
+            return body.array();
+        } catch (NoSuchFileException e) {
+            return readCompressed(segment, generation, offset);
+        }
+    }
+
+    private byte[] readCompressed(long segment, int generation, long offset) throws IOException {
+        Path file = segmentPath(segment, generation, true);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return footerOf(file, channel).readRecord(channel, offset);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Log segment ended unexpectedly at " + position);
+            }
+        }
+    }
+
+    /**
+     * Waits until the record at a position has reached disk. Records are written in position
+     * order, so this waits only for the writes queued ahead of it, not for the whole queue.
+     * Compacted generations are always on disk.
+     */
+    private synchronized void awaitDurable(long position) {
+        while (generationOf(position) == 0 && durableEnd <= position && failure == null && writer.isAlive()) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public synchronized void flush() {
+        while (durable < appended && writer.isAlive()) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public long getPendingWrites() {
+        return pendingWrites.size();
+    }
+
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    public long getCompactionRuns() {
+        return compactionRuns.get();
+    }
+
+    public int getSegmentCount() {
+        synchronized (sealedGenerations) {
+            return sealedGenerations.size() + 1;
+        }
+    }
+
+    public long getDiskBytes() {
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (segmentPattern.matcher(file.getFileName().toString()).matches()) {
+                    total += Files.size(file);
+                }
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return total;
+    }
+
+    public String getStatsSummary() {
+        return String.format("%s: segments=%d, diskBytes=%d, pendingWrites=%d, bytesReclaimed=%d, compactions=%d",
+                name, getSegmentCount(), getDiskBytes(), getPendingWrites(), getBytesReclaimed(), getCompactionRuns());
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingWrites.add(SHUTDOWN);
+        }
+        try {
+            writer.join();
+            maintenance.shutdown();
+            maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
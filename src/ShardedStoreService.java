@@ -0,0 +1,343 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Spreads stores across shards by consistent hashing. The shard list and ring are immutable and
+ * published together through a volatile field, so point reads route without locking. Writes and
+ * whole-catalog views hold the read side of the routing lock; adding a shard and cross-shard
+ * renames hold the write side, so nothing observes or changes a store while it is being moved.
+ */
+public class ShardedStoreService extends StoreService {
+    private static final int VIRTUAL_NODES_PER_SHARD = 64;
+
+    private static final class Routing {
+        final List<StoreService> shards;
+        final ConsistentHashRing<StoreService> ring;
+
+        Routing(List<StoreService> shards, ConsistentHashRing<StoreService> ring) {
+            this.shards = Collections.unmodifiableList(shards);
+            this.ring = ring;
+        }
+    }
+
+    private final ReentrantReadWriteLock routingLock = new ReentrantReadWriteLock();
+    private volatile Routing routing;
+
+    public ShardedStoreService(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        List<StoreService> shards = new ArrayList<>();
+        ConsistentHashRing<StoreService> ring = new ConsistentHashRing<>(VIRTUAL_NODES_PER_SHARD);
+        for (int i = 0; i < shardCount; i++) {
+            StoreService shard = new StoreService();
+            shard.setPriceHistory(getPriceHistory());
+            shards.add(shard);
+            ring.addNode(shardId(i), shard);
+        }
+        this.routing = new Routing(shards, ring);
+    }
+
+    /**
+     * Adds a shard and moves the stores it now owns. Stores are copied to the new shard before
+     * the routing flips and removed from their old shard only afterwards, so a lock-free point
+     * read always finds a store on whichever shard its routing points at.
+     */
+    public int addShard() {
+        routingLock.writeLock().lock();
+        try {
+            Routing current = this.routing;
+            StoreService newShard = new StoreService();
+            newShard.setJournal(getJournal());
+            newShard.setEventBus(getEventBus());
+            newShard.setPriceHistory(getPriceHistory());
+            newShard.setWishlists(getWishlists());
+            int index = current.shards.size();
+            List<StoreService> shards = new ArrayList<>(current.shards);
+            shards.add(newShard);
+            ConsistentHashRing<StoreService> ring = new ConsistentHashRing<>(current.ring);
+            ring.addNode(shardId(index), newShard);
+
+            List<Map.Entry<StoreService, String>> moved = new ArrayList<>();
+            for (StoreService shard : current.shards) {
+                for (Map.Entry<String, StoreSnapshot> entry : shard.streamStoreSnapshots().collect(Collectors.toList())) {
+                    if (ring.nodeFor(entry.getKey()) == newShard) {
+                        StoreSnapshot store = entry.getValue();
+                        newShard.attachStore(entry.getKey(), store.getOwnerUsername(), store.getGames());
+                        moved.add(new AbstractMap.SimpleImmutableEntry<>(shard, entry.getKey()));
+                    }
+                }
+            }
+            this.routing = new Routing(shards, ring);
+            for (Map.Entry<StoreService, String> move : moved) {
+                move.getKey().detachStore(move.getValue());
+            }
+            System.out.println("Shard " + index + " added. Rebalanced " + moved.size() + " store(s).");
+            return moved.size();
+        } finally {
+            routingLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setJournal(StoreJournal journal) {
+        super.setJournal(journal);
+        for (StoreService shard : this.routing.shards) {
+            shard.setJournal(journal);
+        }
+    }
+
+    @Override
+    public void setEventBus(ChangeEventBus eventBus) {
+        super.setEventBus(eventBus);
+        for (StoreService shard : this.routing.shards) {
+            shard.setEventBus(eventBus);
+        }
+    }
+
+    @Override
+    public void setPriceHistory(PriceHistory priceHistory) {
+        super.setPriceHistory(priceHistory);
+        for (StoreService shard : this.routing.shards) {
+            shard.setPriceHistory(priceHistory);
+        }
+    }
+
+    @Override
+    public void setWishlists(WishlistService wishlists) {
+        super.setWishlists(wishlists);
+        for (StoreService shard : this.routing.shards) {
+            shard.setWishlists(wishlists);
+        }
+    }
+
+    public int getShardCount() {
+        return this.routing.shards.size();
+    }
+
+    private static String shardId(int index) {
+        return "shard-" + index;
+    }
+
+    private StoreService shardFor(String storeName) {
+        return this.routing.ring.nodeFor(storeName);
+    }
+
+    private <T> T underReadLock(Supplier<T> write) {
+        routingLock.readLock().lock();
+        try {
+            return write.get();
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    private void underReadLock(Runnable write) {
+        routingLock.readLock().lock();
+        try {
+            write.run();
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Game> getGamesInStore(String storeName) {
+        return shardFor(storeName).getGamesInStore(storeName);
+    }
+
+    @Override
+    public Game getGameFromStore(String storeName, String gameName) {
+        return shardFor(storeName).getGameFromStore(storeName, gameName);
+    }
+
+    @Override
+    public boolean doesStoreExist(String storeName) {
+        return shardFor(storeName).doesStoreExist(storeName);
+    }
+
+    @Override
+    public boolean addStore(String storeName, String ownerUsername) {
+        return underReadLock(() -> shardFor(storeName).addStore(storeName, ownerUsername));
+    }
+
+    @Override
+    public void addGameToStore(String storeName, Game game) {
+        underReadLock(() -> shardFor(storeName).addGameToStore(storeName, game));
+    }
+
+    @Override
+    public boolean renameStore(String oldName, String newName, StoreOwner owner) {
+        routingLock.writeLock().lock();
+        try {
+            StoreService source = shardFor(oldName);
+            StoreService target = shardFor(newName);
+            if (source == target) {
+                return source.renameStore(oldName, newName, owner);
+            }
+            StoreSnapshot store = source.getStoreSnapshot(oldName);
+            if (store == null) {
+                System.out.println("Error: Old store '" + oldName + "' not found.");
+                return false;
+            }
+            if (owner != null && !owner.getUsername().equals(store.getOwnerUsername())) {
+                System.out.println("Error: You do not own store '" + oldName + "'.");
+                return false;
+            }
+            String ownerUsername = store.getOwnerUsername();
+            if (!target.attachStore(newName, ownerUsername, store.getGames())) {
+                System.out.println("Error: New store name '" + newName + "' already exists.");
+                return false;
+            }
+            source.detachStore(oldName);
+            getPriceHistory().renameStore(oldName, newName);
+            if (getWishlists() != null) {
+                getWishlists().renameStore(oldName, newName);
+            }
+
+            recordMutation(StoreMutation.renameStore(oldName, newName));
+            publishChange(ChangeEvent.Type.RENAME_STORE, ownerUsername, oldName, null, 0, newName);
+            TransactionLogger.logTransaction("SYSTEM", "RENAME_STORE", 0, oldName + " -> " + newName);
+            return true;
+        } finally {
+            routingLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void editGamePrice(String storeName, String gameName, double newPrice) {
+        underReadLock(() -> shardFor(storeName).editGamePrice(storeName, gameName, newPrice));
+    }
+
+    @Override
+    public void editGameGenre(String storeName, String gameName, String newGenre) {
+        underReadLock(() -> shardFor(storeName).editGameGenre(storeName, gameName, newGenre));
+    }
+
+    @Override
+    public void removeGame(String storeName, String gameName) {
+        underReadLock(() -> shardFor(storeName).removeGame(storeName, gameName));
+    }
+
+    @Override
+    public int getStoreCount() {
+        return underReadLock(() -> {
+            int stores = 0;
+            for (StoreService shard : this.routing.shards) {
+                stores += shard.getStoreCount();
+            }
+            return stores;
+        });
+    }
+
+    @Override
+    public int getGameCount() {
+        return underReadLock(() -> {
+            int games = 0;
+            for (StoreService shard : this.routing.shards) {
+                games += shard.getGameCount();
+            }
+            return games;
+        });
+    }
+
+    @Override
+    public Map<String, Map<String, Game>> getAllStores() {
+        Map<String, Map<String, Game>> merged = streamAllStores()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, HashMap::new));
+        return Collections.unmodifiableMap(merged);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, Map<String, Game>>> streamAllStores() {
+        List<Stream<Map.Entry<String, Map<String, Game>>>> parts = underReadLock(
+                () -> this.routing.shards.stream().map(StoreService::streamAllStores).collect(Collectors.toList()));
+        return parts.parallelStream().flatMap(part -> part);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, StoreSnapshot>> streamStoreSnapshots() {
+        List<Stream<Map.Entry<String, StoreSnapshot>>> parts = underReadLock(
+                () -> this.routing.shards.stream().map(StoreService::streamStoreSnapshots).collect(Collectors.toList()));
+        return parts.parallelStream().flatMap(part -> part);
+    }
+
+    @Override
+    public boolean isStoreOwnedBy(String storeName, String ownerUsername) {
+        return shardFor(storeName).isStoreOwnedBy(storeName, ownerUsername);
+    }
+
+    @Override
+    public Set<String> getStoresOwnedBy(String ownerUsername) {
+        return new AbstractSet<String>() {
+            @Override
+            public boolean contains(Object storeName) {
+                return storeName instanceof String && isStoreOwnedBy((String) storeName, ownerUsername);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                List<String> owned = underReadLock(() -> routing.shards.stream()
+                        .flatMap(shard -> shard.getStoresOwnedBy(ownerUsername).stream()).collect(Collectors.toList()));
+                return owned.iterator();
+            }
+
+            @Override
+            public int size() {
+                return underReadLock(() -> {
+                    int size = 0;
+                    for (StoreService shard : routing.shards) {
+                        size += shard.getStoresOwnedBy(ownerUsername).size();
+                    }
+                    return size;
+                });
+            }
+        };
+    }
+
+    @Override
+    public void forEachOwnedStore(String ownerUsername, ObjIntConsumer<String> action) {
+        underReadLock(() -> {
+            for (StoreService shard : this.routing.shards) {
+                shard.forEachOwnedStore(ownerUsername, action);
+            }
+        });
+    }
+
+    @Override
+    public StoreSnapshot getStoreSnapshot(String storeName) {
+        return shardFor(storeName).getStoreSnapshot(storeName);
+    }
+
+    @Override
+    public long getStoreVersion(String storeName) {
+        return shardFor(storeName).getStoreVersion(storeName);
+    }
+
+    @Override
+    public String getStoreOwner(String storeName) {
+        return shardFor(storeName).getStoreOwner(storeName);
+    }
+
+    @Override
+    Map<String, Game> detachStore(String storeName) {
+        return underReadLock(() -> shardFor(storeName).detachStore(storeName));
+    }
+
+    @Override
+    boolean attachStore(String storeName, String ownerUsername, Map<String, Game> games) {
+        return underReadLock(() -> shardFor(storeName).attachStore(storeName, ownerUsername, games));
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StoreJournal {
+    private final List<StoreReplica> replicas;
+    private final AtomicInteger nextReplica;
+    private final long maxReadLagMillis;
+    private final int replicaInboxCapacity;
+    private long lastSequence;
+
+    public StoreJournal(long maxReadLagMillis, int replicaInboxCapacity) {
+        if (replicaInboxCapacity <= 0) {
+            throw new IllegalArgumentException("Replica inbox capacity must be positive: " + replicaInboxCapacity);
+        }
+        this.replicas = new CopyOnWriteArrayList<>();
+        this.nextReplica = new AtomicInteger();
+        this.maxReadLagMillis = maxReadLagMillis;
+        this.replicaInboxCapacity = replicaInboxCapacity;
+    }
+
+    public synchronized void append(StoreMutation mutation) {
+        mutation.stamp(++lastSequence, System.nanoTime());
+        for (StoreReplica replica : replicas) {
+            replica.ship(mutation);
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public StoreReplica addReplica(StoreService leader) {
+        StoreReplica replica;
+        long sequence;
+        synchronized (this) {
+            replica = new StoreReplica("replica-" + replicas.size(), this, leader, replicaInboxCapacity);
+            sequence = replica.resetInbox();
+            replicas.add(replica);
+        }
+        replica.seed(sequence);
+        replica.start();
+        return replica;
+    }
+
+    public List<StoreReplica> getReplicas() {
+        return replicas;
+    }
+
+    public StoreService routeRead(StoreService leader) {
+        int count = replicas.size();
+        for (int attempt = 0; attempt < count; attempt++) {
+            StoreReplica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), count));
+            if (replica.isServing() && replica.getLagMillis() <= maxReadLagMillis) {
+                return replica.getStoreService();
+            }
+        }
+        return leader;
+    }
+
+    public void shutdown() {
+        for (StoreReplica replica : replicas) {
+            replica.stop();
+        }
+    }
+}
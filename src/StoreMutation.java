@@ -0,0 +1,89 @@
+public class StoreMutation {
+    public enum Type {
+        CREATE_STORE,
+        ADD_GAME,
+        EDIT_GAME_PRICE,
+        EDIT_GAME_GENRE,
+        REMOVE_GAME,
+        RENAME_STORE
+    }
+
+    private final Type type;
+    private final String storeName;
+    private final String gameName;
+    private final double price;
+    private final String value;
+    private long sequence;
+    private long appendedAtNanos;
+
+    private StoreMutation(Type type, String storeName, String gameName, double price, String value) {
+        this.type = type;
+        this.storeName = storeName;
+        this.gameName = gameName;
+        this.price = price;
+        this.value = value;
+    }
+
+    public static StoreMutation createStore(String storeName, String ownerUsername) {
+        return new StoreMutation(Type.CREATE_STORE, storeName, null, 0, ownerUsername);
+    }
+
+    public static StoreMutation addGame(String storeName, Game game) {
+        return new StoreMutation(Type.ADD_GAME, storeName, game.getName(), game.getPrice(), game.getGenre());
+    }
+
+    public static StoreMutation editGamePrice(String storeName, String gameName, double newPrice) {
+        return new StoreMutation(Type.EDIT_GAME_PRICE, storeName, gameName, newPrice, null);
+    }
+
+    public static StoreMutation editGameGenre(String storeName, String gameName, String newGenre) {
+        return new StoreMutation(Type.EDIT_GAME_GENRE, storeName, gameName, 0, newGenre);
+    }
+
+    public static StoreMutation removeGame(String storeName, String gameName) {
+        return new StoreMutation(Type.REMOVE_GAME, storeName, gameName, 0, null);
+    }
+
+    public static StoreMutation renameStore(String oldName, String newName) {
+        return new StoreMutation(Type.RENAME_STORE, oldName, null, 0, newName);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getGameName() {
+        return gameName;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getAppendedAtNanos() {
+        return appendedAtNanos;
+    }
+
+    void stamp(long sequence, long appendedAtNanos) {
+        this.sequence = sequence;
+        this.appendedAtNanos = appendedAtNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreMutation{seq=" + sequence + ", type=" + type + ", store='" + storeName + "', game='" + gameName
+                + "', price=" + price + ", value='" + value + "'}";
+    }
+}
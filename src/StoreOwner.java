@@ -1,28 +1,30 @@
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 public class StoreOwner extends User {
-    public List<String> myStores;
-
     public StoreOwner(String username, String String) {
         super(username, String, UserRole.STORE_OWNER); 
-        this.myStores = new ArrayList<>();
+    }
+
+    public Set<String> getMyStores(StoreService storeService) {
+        return storeService.getStoresOwnedBy(getUsername());
+    }
+
+    public boolean ownsStore(String storeName, StoreService storeService) {
+        return storeService.isStoreOwnedBy(storeName, getUsername());
     }
 
     public void createStore(String storeName, StoreService storeService) {
-        if (storeService.doesStoreExist(storeName)) {
-            System.out.println("Store name already exists!");
-        } else {
-            storeService.addStore(storeName, this.getUsername());
-            this.myStores.add(storeName);
+        if (storeService.addStore(storeName, this.getUsername())) {
             System.out.println("Store '" + storeName + "' created successfully!");
+        } else {
+            System.out.println("Store name already exists!");
         }
     }
 
     public void addGameToStore(String storeName, String gameName, double price, String genre, StoreService storeService) {
-        if (this.myStores.contains(storeName)) {
+        if (ownsStore(storeName, storeService)) {
             Game newGame = new Game(gameName, price, genre);
             storeService.addGameToStore(storeName, newGame);
             System.out.println("Game '" + gameName + "' (" + genre + ") added to '" + storeName + "' for $" + price);
@@ -31,16 +33,10 @@ public class StoreOwner extends User {
         }
     }
 
-    public void updateStoreNameInList(String oldName, String newName) {
-        if (myStores.contains(oldName)) {
-            myStores.remove(oldName);
-            myStores.add(newName);
-        }
-    }
-
     @Override
     public void performAdminAction(Scanner scanner, UserManager userManager, StoreService storeService) {
         System.out.println("\n--- Store Owner Admin Panel for " + getUsername() + " ---");
+        Set<String> myStores = getMyStores(storeService);
         System.out.println("Your Stores: " + myStores);
 
         if (myStores.isEmpty()) {
@@ -53,7 +49,7 @@ public class StoreOwner extends User {
             return;
         }
 
-        if (isValidStoreForInspection(storeToInspect)) {
+        if (ownsStore(storeToInspect, storeService)) {
             displayGamesInStore(storeToInspect, storeService);
         } else {
             System.out.println("You do not own the store named '" + storeToInspect + "'.");
@@ -65,20 +61,28 @@ public class StoreOwner extends User {
         return scanner.nextLine();
     }
 
-    private boolean isValidStoreForInspection(String storeName) {
-        return myStores.contains(storeName);
-    }
-
     private void displayGamesInStore(String storeName, StoreService storeService) {
         System.out.println("Games in your store '" + storeName + "':");
-        Map<String, Game> games = storeService.getGamesInStore(storeName);
+        StoreSnapshot store = storeService.getStoreSnapshot(storeName);
+        if (store == null) {
+            System.out.println("No games in this store.");
+            return;
+        }
+        System.out.print(storeService.getListingCache().getOrRender("owner", storeName, store.getVersion(),
+                () -> renderOwnerListing(store.getGames())));
+    }
+
+    private static String renderOwnerListing(Map<String, Game> games) {
+        StringBuilder listing = new StringBuilder();
         if (games != null && !games.isEmpty()) {
             for (Game game : games.values()) {
-                System.out.println(" - " + game.getName() + " ($" + String.format("%.2f", game.getPrice()) + ", " + game.getGenre() + ")");
+                listing.append(" - ").append(game.getName()).append(" ($").append(String.format("%.2f", game.getPrice()))
+                        .append(", ").append(game.getGenre()).append(")\n");
             }
         } else {
-            System.out.println("No games in this store.");
+            listing.append("No games in this store.\n");
         }
+        return listing.toString();
     }
 
     @Override
@@ -1,5 +1,6 @@
 
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 public class StoreOwnerMenuHandler {
     private StoreOwner storeOwner;
@@ -68,7 +69,7 @@ public class StoreOwnerMenuHandler {
     private void handleAddGameToStore() {
         System.out.print("Enter store name to add game to: ");
         String storeToAddGame = scanner.nextLine();
-        if (!storeOwner.myStores.contains(storeToAddGame)) {
+        if (!storeOwner.ownsStore(storeToAddGame, storeService)) {
             System.out.println("You don't own this store or it doesn't exist in your list.");
             return;
         }
@@ -89,19 +90,18 @@ public class StoreOwnerMenuHandler {
 
     private void handleViewMyStores() {
         System.out.println("Your Stores:");
-        if (storeOwner.myStores.isEmpty()) {
+        if (storeOwner.getMyStores(storeService).isEmpty()) {
             System.out.println("  - You don't own any stores yet.");
         } else {
-            for (String sName : storeOwner.myStores) {
-                System.out.println("  - " + sName);
-            }
+            storeService.forEachOwnedStore(storeOwner.getUsername(),
+                    (sName, gameCount) -> System.out.println("  - " + sName + " (" + gameCount + " games)"));
         }
     }
 
     private void handleEditStoreSubMenu() {
         System.out.print("Enter the name of the store you want to edit: ");
         String storeToEdit = scanner.nextLine();
-        if (!storeOwner.myStores.contains(storeToEdit)) {
+        if (!storeOwner.ownsStore(storeToEdit, storeService)) {
             System.out.println("You do not own this store or it doesn't exist!");
             return;
         }
@@ -114,7 +114,8 @@ public class StoreOwnerMenuHandler {
         System.out.println("2. Edit Game Price");
         System.out.println("3. Edit Game Genre");
         System.out.println("4. Remove Game");
-        System.out.println("5. Back");
+        System.out.println("5. View Price History");
+        System.out.println("6. Back");
         System.out.print("Choose an edit option: ");
         int editChoice;
         try {
@@ -141,6 +142,9 @@ public class StoreOwnerMenuHandler {
                 handleRemoveGame(storeToEdit);
                 break;
             case 5:
+                handleViewPriceHistory(storeToEdit);
+                break;
+            case 6:
                 break;
             default:
                 System.out.println("Invalid edit option.");
@@ -179,6 +183,30 @@ public class StoreOwnerMenuHandler {
         storeService.removeGame(storeName, gameToRemove);
     }
 
+    private void handleViewPriceHistory(String storeName) {
+        System.out.print("Enter the game name to view price history: ");
+        String gameName = scanner.nextLine();
+        PriceSeries series = storeService.getPriceHistory().getSeries(storeName, gameName);
+        if (series == null) {
+            System.out.println("No price history for " + gameName + " in " + storeName + ".");
+            return;
+        }
+        System.out.print("Look back how many days? ");
+        int days;
+        try {
+            days = Integer.parseInt(scanner.nextLine());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number of days.");
+            return;
+        }
+        long since = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Math.max(0, days));
+        System.out.println("Price history for " + gameName + " (" + series.size() + " price points):");
+        System.out.println("  Current price: $" + String.format("%.2f", series.priceAt(Long.MAX_VALUE)));
+        double then = series.priceAt(since);
+        System.out.println("  Price " + days + " day(s) ago: " + (Double.isNaN(then) ? "not listed yet" : "$" + String.format("%.2f", then)));
+        System.out.println("  Lowest price in the last " + days + " day(s): $" + String.format("%.2f", series.lowestSince(since)));
+    }
+
     private void handlePerformAdminAction() {
         storeOwner.performAdminAction(scanner, userManager, storeService);
     }
@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read replica fed from the store journal through a bounded inbox. If the applier falls so far
+ * behind that the inbox fills, the replica stops accepting mutations, is taken out of read
+ * routing, and rebuilds itself from a fresh leader snapshot before serving again.
+ */
+public class StoreReplica implements Runnable {
+    private final String name;
+    private final StoreJournal journal;
+    private final StoreService leader;
+    private final BlockingQueue<StoreMutation> inbox;
+    private final Thread applier;
+    private final AtomicLong resyncs = new AtomicLong();
+    private volatile ReadOnlyStoreService storeService;
+    private volatile long appliedSequence;
+    private volatile boolean seeded;
+    private volatile boolean stale;
+    private volatile boolean resyncing;
+    private volatile boolean running;
+
+    StoreReplica(String name, StoreJournal journal, StoreService leader, int inboxCapacity) {
+        this.name = name;
+        this.journal = journal;
+        this.leader = leader;
+        this.storeService = new ReadOnlyStoreService();
+        this.inbox = new ArrayBlockingQueue<>(inboxCapacity);
+        this.applier = new Thread(this, name);
+        this.applier.setDaemon(true);
+    }
+
+    /**
+     * Must be called while holding the journal lock. Mutations appended after the returned
+     * sequence will be shipped to the inbox.
+     */
+    long resetInbox() {
+        inbox.clear();
+        stale = false;
+        return journal.getLastSequence();
+    }
+
+    /**
+     * Loads the leader's current catalog. The snapshot is taken after the sequence was captured,
+     * so it already holds every mutation up to that sequence; mutations after it are replayed
+     * from the inbox, which is safe because applying a mutation twice leaves the same state.
+     * The mutations already waiting in the inbox are applied to the new catalog before it is
+     * published, so reads never see it part way through catching up.
+     */
+    void seed(long sequence) {
+        ReadOnlyStoreService fresh = new ReadOnlyStoreService();
+        leader.streamStoreSnapshots().forEach(storeEntry -> fresh.seedStore(storeEntry.getKey(),
+                storeEntry.getValue().getOwnerUsername(), storeEntry.getValue().getGames()));
+        List<StoreMutation> backlog = new ArrayList<>();
+        inbox.drainTo(backlog);
+        for (StoreMutation mutation : backlog) {
+            fresh.apply(mutation);
+            sequence = mutation.getSequence();
+        }
+        this.storeService = fresh;
+        this.appliedSequence = sequence;
+        this.seeded = true;
+    }
+
+    void ship(StoreMutation mutation) {
+        if (!stale && !inbox.offer(mutation)) {
+            stale = true;
+        }
+    }
+
+    void start() {
+        running = true;
+        applier.start();
+    }
+
+    void stop() {
+        running = false;
+        applier.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (stale) {
+                resync();
+                continue;
+            }
+            try {
+                StoreMutation mutation = inbox.take();
+                storeService.apply(mutation);
+                appliedSequence = mutation.getSequence();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void resync() {
+        resyncing = true;
+        try {
+            long sequence;
+            synchronized (journal) {
+                sequence = resetInbox();
+            }
+            seed(sequence);
+            resyncs.incrementAndGet();
+        } finally {
+            resyncing = false;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public StoreService getStoreService() {
+        return storeService;
+    }
+
+    public boolean isServing() {
+        return seeded && !stale && !resyncing;
+    }
+
+    public long getResyncCount() {
+        return resyncs.get();
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public long getLagEntries() {
+        return Math.max(0, journal.getLastSequence() - appliedSequence);
+    }
+
+    public long getLagMillis() {
+        StoreMutation oldestPending = inbox.peek();
+        if (oldestPending == null) {
+            return 0;
+        }
+        return (System.nanoTime() - oldestPending.getAppendedAtNanos()) / 1_000_000;
+    }
+}
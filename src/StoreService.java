@@ -1,108 +1,332 @@
-
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
 
 public class StoreService {
-    private Map<String, Map<String, Game>> stores;
-    private Map<String, String> storeOwnership;
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+
+    private volatile CatalogSnapshot catalog;
+    private final ConcurrentHashMap<String, Set<String>> storesByOwner = new ConcurrentHashMap<>();
+    private ListingRenderCache listingCache;
+    private PriceHistory priceHistory;
+    private WishlistService wishlists;
+    private StoreJournal journal;
+    private ChangeEventBus eventBus;
 
     public StoreService() {
-        this.stores = new HashMap<>();
-        this.storeOwnership = new HashMap<>();
+        this.catalog = CatalogSnapshot.empty();
+        this.listingCache = new ListingRenderCache();
+        this.priceHistory = new PriceHistory();
+    }
+
+    public void setJournal(StoreJournal journal) {
+        this.journal = journal;
+    }
+
+    public StoreJournal getJournal() {
+        return this.journal;
+    }
+
+    public void setEventBus(ChangeEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public ChangeEventBus getEventBus() {
+        return this.eventBus;
+    }
+
+    public void setPriceHistory(PriceHistory priceHistory) {
+        this.priceHistory = priceHistory;
+    }
+
+    public PriceHistory getPriceHistory() {
+        return this.priceHistory;
+    }
+
+    public void setWishlists(WishlistService wishlists) {
+        this.wishlists = wishlists;
+    }
+
+    public WishlistService getWishlists() {
+        return this.wishlists;
+    }
+
+    public StoreService getReadView() {
+        return (this.journal != null) ? this.journal.routeRead(this) : this;
+    }
+
+    public ListingRenderCache getListingCache() {
+        return this.listingCache;
+    }
+
+    public StoreSnapshot getStoreSnapshot(String storeName) {
+        return this.catalog.getStore(storeName);
+    }
+
+    public long getStoreVersion(String storeName) {
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        return (store != null) ? store.getVersion() : 0L;
+    }
+
+    private static long nextVersion() {
+        return VERSION_SEQUENCE.incrementAndGet();
+    }
+
+    private void publishStore(String storeName, StoreSnapshot store) {
+        this.catalog = this.catalog.withStore(storeName, store, store.getVersion());
+    }
+
+    protected void recordMutation(StoreMutation mutation) {
+        if (this.journal != null) {
+            this.journal.append(mutation);
+        }
+    }
+
+    protected void publishChange(ChangeEvent.Type type, String username, String storeName, String gameName, double amount, String value) {
+        if (this.eventBus != null) {
+            this.eventBus.publish(type, username, storeName, gameName, amount, value);
+        }
+    }
+
+    private void indexStore(String ownerUsername, String storeName) {
+        if (ownerUsername != null) {
+            this.storesByOwner.computeIfAbsent(ownerUsername, owner -> ConcurrentHashMap.newKeySet()).add(storeName);
+        }
+    }
+
+    private void unindexStore(String ownerUsername, String storeName) {
+        Set<String> owned = (ownerUsername != null) ? this.storesByOwner.get(ownerUsername) : null;
+        if (owned != null) {
+            owned.remove(storeName);
+        }
+    }
+
+    public boolean isStoreOwnedBy(String storeName, String ownerUsername) {
+        Set<String> owned = this.storesByOwner.get(ownerUsername);
+        return owned != null && owned.contains(storeName);
+    }
+
+    public Set<String> getStoresOwnedBy(String ownerUsername) {
+        return Collections.unmodifiableSet(this.storesByOwner.getOrDefault(ownerUsername, Collections.emptySet()));
+    }
+
+    public void forEachOwnedStore(String ownerUsername, ObjIntConsumer<String> action) {
+        Set<String> owned = this.storesByOwner.get(ownerUsername);
+        if (owned == null) {
+            return;
+        }
+        CatalogSnapshot current = this.catalog;
+        for (String storeName : owned) {
+            StoreSnapshot store = current.getStore(storeName);
+            if (store != null) {
+                action.accept(storeName, store.getGames().size());
+            }
+        }
     }
 
     public Map<String, Game> getGamesInStore(String storeName) {
-        Map<String, Game> games = this.stores.get(storeName);
-        return (games != null) ? games : Collections.emptyMap();
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        return (store != null) ? store.getGames() : Collections.emptyMap();
     }
 
     public Game getGameFromStore(String storeName, String gameName) {
-        Map<String, Game> gamesInStore = this.stores.get(storeName);
-        if (gamesInStore != null) {
-            return gamesInStore.get(gameName);
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        if (store != null) {
+            return store.getGames().get(gameName);
         }
         return null;
     }
     
     public boolean doesStoreExist(String storeName) {
-        return this.stores.containsKey(storeName);
+        return this.catalog.containsKey(storeName);
     }
 
-    public void addStore(String storeName, String ownerUsername) {
-        this.stores.put(storeName, new HashMap<>());
-        this.storeOwnership.put(storeName, ownerUsername);
+    public synchronized boolean addStore(String storeName, String ownerUsername) {
+        if (this.catalog.containsKey(storeName)) {
+            return false;
+        }
+        publishStore(storeName, StoreSnapshot.empty(ownerUsername, nextVersion()));
+        indexStore(ownerUsername, storeName);
+        recordMutation(StoreMutation.createStore(storeName, ownerUsername));
+        publishChange(ChangeEvent.Type.ADD_STORE, ownerUsername, storeName, null, 0, null);
         TransactionLogger.logTransaction(ownerUsername, "CREATE_STORE", 0, storeName);
+        return true;
     }
 
-    public void addGameToStore(String storeName, Game game) {
-        if (this.stores.containsKey(storeName)) {
-            this.stores.get(storeName).put(game.getName(), game);
-            TransactionLogger.logTransaction(this.storeOwnership.get(storeName), "ADD_GAME", game.getPrice(), game.getName() + " to " + storeName);
+    public synchronized void addGameToStore(String storeName, Game game) {
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        if (store != null) {
+            publishStore(storeName, store.withGame(game, nextVersion()));
+            this.priceHistory.record(storeName, game.getName(), game.getPrice(), System.currentTimeMillis());
+            recordMutation(StoreMutation.addGame(storeName, game));
+            publishChange(ChangeEvent.Type.ADD_GAME, store.getOwnerUsername(), storeName, game.getName(), game.getPrice(), game.getGenre());
+            TransactionLogger.logTransaction(store.getOwnerUsername(), "ADD_GAME", game.getPrice(), game.getName() + " to " + storeName);
         } else {
             System.out.println("Error: Store " + storeName + " not found when trying to add game.");
         }
     }
 
-    public boolean renameStore(String oldName, String newName, StoreOwner owner) {
-        if (!this.stores.containsKey(oldName)) {
+    public synchronized boolean renameStore(String oldName, String newName, StoreOwner owner) {
+        StoreSnapshot store = this.catalog.getStore(oldName);
+        if (store == null) {
             System.out.println("Error: Old store '" + oldName + "' not found.");
             return false;
         }
-        if (this.stores.containsKey(newName)) {
+        if (owner != null && !owner.getUsername().equals(store.getOwnerUsername())) {
+            System.out.println("Error: You do not own store '" + oldName + "'.");
+            return false;
+        }
+        if (this.catalog.containsKey(newName)) {
             System.out.println("Error: New store name '" + newName + "' already exists.");
             return false;
         }
-        Map<String, Game> games = this.stores.remove(oldName);
-        String ownerUsername = this.storeOwnership.remove(oldName);
-        this.stores.put(newName, games);
-        this.storeOwnership.put(newName, ownerUsername);
+        long version = nextVersion();
+        this.catalog = this.catalog.withoutStore(oldName, version).withStore(newName, store.withVersion(version), version);
+        unindexStore(store.getOwnerUsername(), oldName);
+        indexStore(store.getOwnerUsername(), newName);
+        this.priceHistory.renameStore(oldName, newName);
+        if (this.wishlists != null) {
+            this.wishlists.renameStore(oldName, newName);
+        }
 
-        owner.updateStoreNameInList(oldName, newName);
+        recordMutation(StoreMutation.renameStore(oldName, newName));
+        publishChange(ChangeEvent.Type.RENAME_STORE, store.getOwnerUsername(), oldName, null, 0, newName);
         TransactionLogger.logTransaction("SYSTEM", "RENAME_STORE", 0, oldName + " -> " + newName);
         return true;
     }
 
-    public void editGamePrice(String storeName, String gameName, double newPrice) {
-        Map<String, Game> gamesInStore = this.stores.get(storeName);
-        if (gamesInStore != null && gamesInStore.containsKey(gameName)) {
-            Game game = gamesInStore.get(gameName);
-            game.setPrice(newPrice);
-            TransactionLogger.logTransaction(this.storeOwnership.get(storeName), "EDIT_GAME_PRICE", newPrice, gameName + " in " + storeName);
+    public synchronized void editGamePrice(String storeName, String gameName, double newPrice) {
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        Game game = (store != null) ? store.getGames().get(gameName) : null;
+        if (game != null) {
+            publishStore(storeName, store.withGame(new Game(gameName, newPrice, game.getGenre()), nextVersion()));
+            this.priceHistory.record(storeName, gameName, newPrice, System.currentTimeMillis());
+            if (this.wishlists != null) {
+                this.wishlists.onPriceChanged(storeName, gameName, game.getPrice(), newPrice);
+            }
+            recordMutation(StoreMutation.editGamePrice(storeName, gameName, newPrice));
+            publishChange(ChangeEvent.Type.EDIT_GAME_PRICE, store.getOwnerUsername(), storeName, gameName, newPrice, null);
+            TransactionLogger.logCatalogChange(store.getOwnerUsername(), "EDIT_GAME_PRICE", newPrice, gameName + " in " + storeName, storeName, gameName);
             System.out.println("Price updated successfully for " + gameName + ".");
         } else {
             System.out.println("Store or game not found for price edit.");
         }
     }
 
-     public void editGameGenre(String storeName, String gameName, String newGenre) {
-        Map<String, Game> gamesInStore = this.stores.get(storeName);
-        if (gamesInStore != null && gamesInStore.containsKey(gameName)) {
-            Game game = gamesInStore.get(gameName);
-            game.setGenre(newGenre);
-            TransactionLogger.logTransaction(this.storeOwnership.get(storeName), "EDIT_GAME_GENRE", 0, gameName + " in " + storeName + " to " + newGenre);
+    public synchronized void editGameGenre(String storeName, String gameName, String newGenre) {
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        Game game = (store != null) ? store.getGames().get(gameName) : null;
+        if (game != null) {
+            publishStore(storeName, store.withGame(new Game(gameName, game.getPrice(), newGenre), nextVersion()));
+            recordMutation(StoreMutation.editGameGenre(storeName, gameName, newGenre));
+            publishChange(ChangeEvent.Type.EDIT_GAME_GENRE, store.getOwnerUsername(), storeName, gameName, 0, newGenre);
+            TransactionLogger.logCatalogChange(store.getOwnerUsername(), "EDIT_GAME_GENRE", 0, gameName + " in " + storeName + " to " + newGenre, storeName, gameName);
             System.out.println("Genre updated successfully for " + gameName + ".");
         } else {
             System.out.println("Store or game not found for genre edit.");
         }
     }
 
-    public void removeGame(String storeName, String gameName) {
-        Map<String, Game> gamesInStore = this.stores.get(storeName);
-        if (gamesInStore != null && gamesInStore.containsKey(gameName)) {
-            gamesInStore.remove(gameName);
-            TransactionLogger.logTransaction(this.storeOwnership.get(storeName), "REMOVE_GAME", 0, gameName + " from " + storeName);
+    public synchronized void removeGame(String storeName, String gameName) {
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        if (store != null && store.getGames().containsKey(gameName)) {
+            publishStore(storeName, store.withoutGame(gameName, nextVersion()));
+            recordMutation(StoreMutation.removeGame(storeName, gameName));
+            publishChange(ChangeEvent.Type.REMOVE_GAME, store.getOwnerUsername(), storeName, gameName, 0, null);
+            TransactionLogger.logCatalogChange(store.getOwnerUsername(), "REMOVE_GAME", 0, gameName + " from " + storeName, storeName, gameName);
             System.out.println("Game removed successfully.");
         } else {
             System.out.println("Store or game not found for removal.");
         }
     }
 
+    public int getStoreCount() {
+        return this.catalog.size();
+    }
+
+    public int getGameCount() {
+        return this.catalog.getGameCount();
+    }
+
     public Map<String, Map<String, Game>> getAllStores() {
-        return this.stores;
+        return this.catalog;
+    }
+
+    public Stream<Map.Entry<String, Map<String, Game>>> streamAllStores() {
+        return this.catalog.entrySet().stream();
+    }
+
+    public Stream<Map.Entry<String, StoreSnapshot>> streamStoreSnapshots() {
+        return this.catalog.getStores().entrySet().stream();
+    }
+
+    synchronized void applyMutation(StoreMutation mutation) {
+        String storeName = mutation.getStoreName();
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        switch (mutation.getType()) {
+            case CREATE_STORE:
+                if (store != null) {
+                    break;
+                }
+                publishStore(storeName, StoreSnapshot.empty(mutation.getValue(), nextVersion()));
+                indexStore(mutation.getValue(), storeName);
+                break;
+            case ADD_GAME:
+                if (store != null) {
+                    Game game = new Game(mutation.getGameName(), mutation.getPrice(), mutation.getValue());
+                    publishStore(storeName, store.withGame(game, nextVersion()));
+                }
+                break;
+            case EDIT_GAME_PRICE:
+                if (store != null && store.getGames().containsKey(mutation.getGameName())) {
+                    Game game = store.getGames().get(mutation.getGameName());
+                    publishStore(storeName, store.withGame(new Game(game.getName(), mutation.getPrice(), game.getGenre()), nextVersion()));
+                }
+                break;
+            case EDIT_GAME_GENRE:
+                if (store != null && store.getGames().containsKey(mutation.getGameName())) {
+                    Game game = store.getGames().get(mutation.getGameName());
+                    publishStore(storeName, store.withGame(new Game(game.getName(), game.getPrice(), mutation.getValue()), nextVersion()));
+                }
+                break;
+            case REMOVE_GAME:
+                if (store != null) {
+                    publishStore(storeName, store.withoutGame(mutation.getGameName(), nextVersion()));
+                }
+                break;
+            case RENAME_STORE:
+                if (store != null && attachStore(mutation.getValue(), store.getOwnerUsername(), store.getGames())) {
+                    detachStore(storeName);
+                }
+                break;
+        }
+    }
+
+    synchronized Map<String, Game> detachStore(String storeName) {
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        this.catalog = this.catalog.withoutStore(storeName, nextVersion());
+        if (store == null) {
+            return null;
+        }
+        unindexStore(store.getOwnerUsername(), storeName);
+        return store.getGames();
+    }
+
+    synchronized boolean attachStore(String storeName, String ownerUsername, Map<String, Game> games) {
+        if (this.catalog.containsKey(storeName)) {
+            return false;
+        }
+        publishStore(storeName, new StoreSnapshot(ownerUsername, games, nextVersion()));
+        indexStore(ownerUsername, storeName);
+        return true;
     }
 
     public String getStoreOwner(String storeName) {
-        return this.storeOwnership.get(storeName);
+        StoreSnapshot store = this.catalog.getStore(storeName);
+        return (store != null) ? store.getOwnerUsername() : null;
     }
 }
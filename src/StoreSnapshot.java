@@ -0,0 +1,41 @@
+import java.util.Map;
+
+public final class StoreSnapshot {
+    private final String ownerUsername;
+    private final HashTrie<String, Game> games;
+    private final long version;
+
+    StoreSnapshot(String ownerUsername, Map<String, Game> games, long version) {
+        this.ownerUsername = ownerUsername;
+        this.games = HashTrie.copyOf(games);
+        this.version = version;
+    }
+
+    static StoreSnapshot empty(String ownerUsername, long version) {
+        return new StoreSnapshot(ownerUsername, HashTrie.empty(), version);
+    }
+
+    public String getOwnerUsername() {
+        return ownerUsername;
+    }
+
+    public Map<String, Game> getGames() {
+        return games;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    StoreSnapshot withGame(Game game, long newVersion) {
+        return new StoreSnapshot(ownerUsername, games.plus(game.getName(), game), newVersion);
+    }
+
+    StoreSnapshot withoutGame(String gameName, long newVersion) {
+        return new StoreSnapshot(ownerUsername, games.minus(gameName), newVersion);
+    }
+
+    StoreSnapshot withVersion(long newVersion) {
+        return new StoreSnapshot(ownerUsername, games, newVersion);
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time reading of operational counters. Every figure is read from a counter the
+ * owning structure already maintains, so capturing one costs a handful of field reads and
+ * can be repeated every second under load.
+ */
+public class SystemStats {
+    private static final ChangeEvent.Type[] EVENT_TYPES = ChangeEvent.Type.values();
+
+    private final long capturedAtNanos;
+    private final int[] usersByRole = new int[UserRole.values().length];
+    private int users;
+    private int stores;
+    private int games;
+    private long heapUsed;
+    private long heapMax;
+    private long registryBytes;
+    private long priceHistoryBytes;
+    private long pricePoints;
+    private long recommenderBytes;
+    private long loggerPendingWrites = -1;
+    private long listingHits;
+    private long listingMisses;
+    private long idempotencyHits;
+    private long idempotencyMisses;
+    private long eventsPublished;
+    private long[] eventsByType;
+    private long eventsDropped;
+    private long admitted;
+    private long rejected;
+    private int admissionQueueDepth;
+    private int replicas;
+    private long maxReplicaLagEntries;
+    private int staleReplicas;
+    private long replicaResyncs;
+    private long priceAlertsDelivered;
+
+    private SystemStats() {
+        this.capturedAtNanos = System.nanoTime();
+    }
+
+    public static SystemStats capture(UserManager userManager, StoreService storeService, ChangeEventBus.Subscription counterSubscription,
+                                      OperationCounter counter) {
+        SystemStats stats = new SystemStats();
+        UserRegistry registry = userManager.getRegistry();
+        stats.users = registry.size();
+        for (UserRole role : UserRole.values()) {
+            stats.usersByRole[role.ordinal()] = registry.countByRole(role);
+        }
+        stats.registryBytes = registry.estimatedBytes();
+        stats.stores = storeService.getStoreCount();
+        stats.games = storeService.getGameCount();
+
+        Runtime runtime = Runtime.getRuntime();
+        stats.heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        stats.heapMax = runtime.maxMemory();
+        stats.priceHistoryBytes = storeService.getPriceHistory().estimatedBytes();
+        stats.pricePoints = storeService.getPriceHistory().getPointCount();
+        if (userManager.getRecommender() != null) {
+            stats.recommenderBytes = userManager.getRecommender().estimatedBytes();
+        }
+
+        TransactionHistory history = TransactionLogger.getHistory();
+        if (history != null) {
+            stats.loggerPendingWrites = history.getPendingWrites();
+        }
+
+        stats.addListingCache(storeService.getListingCache());
+        StoreJournal journal = storeService.getJournal();
+        if (journal != null) {
+            for (StoreReplica replica : journal.getReplicas()) {
+                stats.replicas++;
+                stats.maxReplicaLagEntries = Math.max(stats.maxReplicaLagEntries, replica.getLagEntries());
+                stats.staleReplicas += replica.isServing() ? 0 : 1;
+                stats.replicaResyncs += replica.getResyncCount();
+                stats.addListingCache(replica.getStoreService().getListingCache());
+            }
+        }
+
+        IdempotencyCache idempotency = userManager.getIdempotencyCache();
+        if (idempotency != null) {
+            stats.idempotencyHits = idempotency.getHits();
+            stats.idempotencyMisses = idempotency.getMisses();
+        }
+        AdmissionController admission = userManager.getAdmissionController();
+        if (admission != null) {
+            stats.admitted = admission.getAdmittedCount();
+            stats.rejected = admission.getRejectedCount();
+            stats.admissionQueueDepth = admission.getQueueDepth();
+        }
+        if (storeService.getEventBus() != null) {
+            stats.eventsPublished = storeService.getEventBus().getPublishedCount();
+        }
+        if (counter != null) {
+            stats.eventsByType = counter.getCounts();
+            stats.eventsDropped = counterSubscription.getDropped();
+        }
+        if (storeService.getWishlists() != null) {
+            stats.priceAlertsDelivered = storeService.getWishlists().getNotificationsDelivered();
+        }
+        return stats;
+    }
+
+    private void addListingCache(ListingRenderCache cache) {
+        listingHits += cache.getHits();
+        listingMisses += cache.getMisses();
+    }
+
+    private static String hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return (total == 0) ? "n/a" : String.format("%.1f%%", 100.0 * hits / total);
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    public void print(SystemStats previous) {
+        double seconds = (previous != null) ? (capturedAtNanos - previous.capturedAtNanos) / (double) TimeUnit.SECONDS.toNanos(1) : 0;
+        System.out.println("\n--- System Stats ---");
+        StringBuilder roles = new StringBuilder();
+        for (UserRole role : UserRole.values()) {
+            roles.append(roles.length() == 0 ? "" : ", ").append(role.getRoleName()).append(' ').append(usersByRole[role.ordinal()]);
+        }
+        System.out.println("Users: " + users + " (" + roles + ")");
+        System.out.println("Stores: " + stores + ", games listed: " + games);
+        System.out.println("Heap: " + megabytes(heapUsed) + " used of " + megabytes(heapMax));
+        System.out.println("Memory estimates: user registry " + megabytes(registryBytes) + ", price history " + megabytes(priceHistoryBytes)
+                + " (" + pricePoints + " points), recommender " + megabytes(recommenderBytes));
+        System.out.println("Transaction log pending writes: " + ((loggerPendingWrites < 0) ? "history disabled" : loggerPendingWrites));
+        System.out.println("Listing cache hit rate: " + hitRate(listingHits, listingMisses)
+                + ", idempotency cache hit rate: " + hitRate(idempotencyHits, idempotencyMisses));
+        System.out.println("Admission: " + admitted + " admitted, " + rejected + " rejected, queue depth " + admissionQueueDepth);
+        System.out.println("Read replicas: " + replicas + ((replicas > 0) ? ", max lag " + maxReplicaLagEntries + " entries, "
+                + staleReplicas + " resyncing, " + replicaResyncs + " resync(s)" : ""));
+        System.out.println("Price alerts delivered: " + priceAlertsDelivered);
+        if (seconds <= 0) {
+            System.out.println("Events published: " + eventsPublished + " (refresh to see throughput)");
+            return;
+        }
+        System.out.printf("Throughput: %.1f events/s%n", (eventsPublished - previous.eventsPublished) / seconds);
+        if (eventsByType != null && previous.eventsByType != null) {
+            StringBuilder breakdown = new StringBuilder();
+            for (ChangeEvent.Type type : EVENT_TYPES) {
+                long delta = eventsByType[type.ordinal()] - previous.eventsByType[type.ordinal()];
+                if (delta > 0) {
+                    breakdown.append(String.format("  %s %.1f/s", type.name().toLowerCase(), delta / seconds));
+                }
+            }
+            System.out.println("By operation:" + ((breakdown.length() == 0) ? " idle" : breakdown.toString())
+                    + ((eventsDropped > previous.eventsDropped) ? " (counter lapped, " + (eventsDropped - previous.eventsDropped) + " missed)" : ""));
+        }
+    }
+}
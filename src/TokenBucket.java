@@ -0,0 +1,60 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket kept as the single instant at which it would hold no tokens, so a refill and a
+ * take are one compare-and-set instead of a lock. The tokens available at {@code now} are the
+ * time elapsed since that instant at the refill rate, capped at the capacity.
+ */
+public class TokenBucket {
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong emptyAtNanos;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Token bucket rate and capacity must be positive.");
+        }
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000.0 / ratePerSecond));
+        this.burstNanos = (long) (capacity * nanosPerToken);
+        this.emptyAtNanos = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    private long emptyAt(long current, long now) {
+        return Math.max(current, now - burstNanos);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = emptyAtNanos.get();
+            long next = emptyAt(current, now) + nanosPerToken;
+            if (next - now > 0) {
+                return false;
+            }
+            if (emptyAtNanos.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public void refund() {
+        emptyAtNanos.addAndGet(-nanosPerToken);
+    }
+
+    public long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        return Math.max(0, emptyAt(emptyAtNanos.get(), now) + nanosPerToken - now);
+    }
+
+    public boolean isFull() {
+        return idleNanos() >= burstNanos;
+    }
+
+    /**
+     * How long the bucket has been refilling since it was last empty; the longer, the less
+     * recently it was drawn on.
+     */
+    public long idleNanos() {
+        return System.nanoTime() - emptyAtNanos.get();
+    }
+}
@@ -0,0 +1,447 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps per-user transaction history on disk. Each sealed segment of the transaction log has a
+ * {@link SegmentIndex} written next to it, so startup maps those indexes instead of replaying
+ * the log; only records in segments that are not indexed yet are indexed on the heap.
+ */
+public class TransactionHistory {
+    public static final int DEFAULT_TAIL_SIZE = 64;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_SEGMENT_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String TRANSACTION_LOG = "transactions";
+    private static final Set<String> CATALOG_TYPES = Set.of(
+            "CREATE_STORE", "ADD_GAME", "EDIT_GAME_PRICE", "EDIT_GAME_GENRE", "REMOVE_GAME", "RENAME_STORE");
+
+    private final Path directory;
+    private final int tailSize;
+    private final ConcurrentHashMap<String, UserIndex> users;
+    private final ConcurrentSkipListMap<Long, IndexedSegment> indexes;
+    private final SegmentedLog transactionLog;
+    private final SegmentedLog catalogLog;
+    private volatile long indexedThrough;
+
+    /**
+     * A user's records in segments newer than {@code indexedThrough}, addressed by an ordinal
+     * that keeps counting as indexed entries are pruned from the front. Once every entry has
+     * been pruned the whole index, tail included, is dropped, so only users with records in
+     * unindexed segments hold memory here.
+     */
+    private class UserIndex {
+        private long[] positions = new long[8];
+        private long[] timestamps = new long[8];
+        private String[] types = new String[8];
+        private final TransactionRecord[] tail;
+        private int first;
+        private int count;
+
+        UserIndex(int tailSize) {
+            this.tail = new TransactionRecord[tailSize];
+        }
+
+        synchronized void append(long position, TransactionRecord record) {
+            int size = count - first;
+            if (size == positions.length) {
+                int capacity = Math.max(8, size * 2);
+                positions = Arrays.copyOf(positions, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+            positions[size] = position;
+            timestamps[size] = record.getTimestampMillis();
+            types[size] = record.getType();
+            tail[count % tail.length] = record;
+            count++;
+        }
+
+        /**
+         * Drops the entries of indexed segments and returns whether none are left.
+         */
+        synchronized boolean prune(long through) {
+            int pruned = 0;
+            while (first + pruned < count && SegmentedLog.segmentOf(positions[pruned]) <= through) {
+                pruned++;
+            }
+            if (pruned == 0) {
+                return first == count;
+            }
+            for (int ordinal = Math.max(first, count - tail.length); ordinal < first + pruned; ordinal++) {
+                tail[ordinal % tail.length] = null;
+            }
+            int size = count - first - pruned;
+            System.arraycopy(positions, pruned, positions, 0, size);
+            System.arraycopy(timestamps, pruned, timestamps, 0, size);
+            System.arraycopy(types, pruned, types, 0, size);
+            Arrays.fill(types, size, size + pruned, null);
+            first += pruned;
+            return first == count;
+        }
+
+        /**
+         * Copies the entries in segments that are not indexed yet, together with the tail
+         * records among them. The watermark is read under the lock that pruning takes, so the
+         * copy and the indexed segments it is paired with never both miss a segment.
+         */
+        synchronized HeapEntries snapshot() {
+            long through = indexedThrough;
+            int skipped = 0;
+            while (first + skipped < count && SegmentedLog.segmentOf(positions[skipped]) <= through) {
+                skipped++;
+            }
+            int size = count - first - skipped;
+            TransactionRecord[] records = new TransactionRecord[size];
+            for (int i = Math.max(0, size - tail.length); i < size; i++) {
+                records[i] = tail[(first + skipped + i) % tail.length];
+            }
+            return new HeapEntries(through, Arrays.copyOfRange(positions, skipped, skipped + size),
+                    Arrays.copyOfRange(timestamps, skipped, skipped + size),
+                    Arrays.copyOfRange(types, skipped, skipped + size), records);
+        }
+    }
+
+    /** One run of a user's entries, oldest first, whose records can be read by ordinal. */
+    private abstract class Entries {
+        abstract int count();
+
+        abstract long timestamp(int ordinal);
+
+        abstract boolean hasType(int ordinal);
+
+        abstract TransactionRecord record(int ordinal);
+
+        int lastAtOrBefore(long timestampMillis) {
+            int low = 0;
+            int high = count() - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamp(mid) <= timestampMillis) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        int firstAtOrAfter(long timestampMillis) {
+            int low = 0;
+            int high = count() - 1;
+            int found = count();
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamp(mid) >= timestampMillis) {
+                    found = mid;
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return found;
+        }
+    }
+
+    private static class HeapEntries {
+        private final long indexedThrough;
+        private final long[] positions;
+        private final long[] timestamps;
+        private final String[] types;
+        private final TransactionRecord[] records;
+
+        HeapEntries(long indexedThrough, long[] positions, long[] timestamps, String[] types, TransactionRecord[] records) {
+            this.indexedThrough = indexedThrough;
+            this.positions = positions;
+            this.timestamps = timestamps;
+            this.types = types;
+            this.records = records;
+        }
+    }
+
+    private static class IndexedSegment {
+        private final int generation;
+        private final SegmentIndex index;
+
+        IndexedSegment(int generation, SegmentIndex index) {
+            this.generation = generation;
+            this.index = index;
+        }
+    }
+
+    public TransactionHistory(Path directory) throws IOException {
+        this(directory, DEFAULT_TAIL_SIZE, DEFAULT_SEGMENT_BYTES, DEFAULT_SEGMENT_AGE_MILLIS);
+    }
+
+    public TransactionHistory(Path directory, int tailSize, long maxSegmentBytes, long maxSegmentAgeMillis) throws IOException {
+        this.directory = directory;
+        this.tailSize = tailSize;
+        this.users = new ConcurrentHashMap<>();
+        this.indexes = new ConcurrentSkipListMap<>();
+        this.transactionLog = new SegmentedLog(directory, TRANSACTION_LOG, maxSegmentBytes, maxSegmentAgeMillis, null);
+        this.catalogLog = new SegmentedLog(directory, "catalog", maxSegmentBytes, maxSegmentAgeMillis, TransactionHistory::compactionKeyOf);
+        loadIndexes();
+        this.transactionLog.setSealListener(this::indexSealedSegment);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Every segment on disk is sealed when the log opens. Indexes written by an earlier run are
+     * mapped as they are; segments without one (the last segment of the previous run, or a log
+     * written before indexes existed) are scanned once and indexed now.
+     */
+    private void loadIndexes() {
+        TreeMap<Long, Integer> sealed = transactionLog.getSealedSegments();
+        for (Map.Entry<Long, Integer> segment : sealed.entrySet()) {
+            Path file = SegmentIndex.pathFor(directory, TRANSACTION_LOG, segment.getKey(), segment.getValue());
+            SegmentIndex index = null;
+            if (Files.exists(file)) {
+                try {
+                    index = SegmentIndex.open(file);
+                } catch (IOException e) {
+                    System.out.println("Error: could not open " + file.getFileName() + ": " + e.getMessage() + ". Rebuilding it.");
+                }
+            }
+            if (index == null) {
+                index = buildIndex(segment.getKey(), segment.getValue());
+            }
+            if (index != null) {
+                indexes.put(segment.getKey(), new IndexedSegment(segment.getValue(), index));
+            }
+        }
+        this.indexedThrough = sealed.isEmpty() ? -1 : sealed.lastKey();
+    }
+
+    private void indexSealedSegment(long segment, int generation) {
+        SegmentIndex index = buildIndex(segment, generation);
+        if (index == null) {
+            return;
+        }
+        indexes.put(segment, new IndexedSegment(generation, index));
+        long through = indexedThrough;
+        while (indexes.containsKey(through + 1)) {
+            through++;
+        }
+        if (through != indexedThrough) {
+            indexedThrough = through;
+            long prunedThrough = through;
+            for (String username : users.keySet()) {
+                users.computeIfPresent(username, (name, user) -> user.prune(prunedThrough) ? null : user);
+            }
+        }
+    }
+
+    /**
+     * Scans one sealed segment and writes its index. A segment that cannot be read is left
+     * unindexed, which keeps later segments' records on the heap rather than losing them.
+     */
+    private SegmentIndex buildIndex(long segment, int generation) {
+        SegmentIndex.Builder builder = new SegmentIndex.Builder();
+        try {
+            transactionLog.forEachRecord(segment, generation, (position, encoded) -> {
+                TransactionRecord record = decode(encoded);
+                builder.add(record.getUsername(), record.getTimestampMillis(), SegmentedLog.offsetOf(position), record.getType());
+            });
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: could not index transaction segment " + segment + ": " + e.getMessage());
+            return null;
+        }
+        Path file = SegmentIndex.pathFor(directory, TRANSACTION_LOG, segment, generation);
+        try {
+            return builder.write(file);
+        } catch (IOException e) {
+            System.out.println("Error: could not write " + file.getFileName() + ": " + e.getMessage() + ". Keeping it in memory.");
+            try {
+                return builder.inMemory();
+            } catch (IOException unexpected) {
+                return null;
+            }
+        }
+    }
+
+    private static TransactionRecord decode(byte[] encoded) {
+        try {
+            return TransactionRecord.decode(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String compactionKeyOf(byte[] encoded) {
+        String key = decode(encoded).getCompactionKey();
+        return key.isEmpty() ? null : key;
+    }
+
+    public void record(TransactionRecord record) {
+        if (CATALOG_TYPES.contains(record.getType())) {
+            catalogLog.append(record.encode());
+            return;
+        }
+        long position = transactionLog.append(record.encode());
+        users.compute(record.getUsername(), (name, user) -> {
+            UserIndex index = (user != null) ? user : new UserIndex(tailSize);
+            index.append(position, record);
+            return index;
+        });
+    }
+
+    public void flush() {
+        transactionLog.flush();
+        catalogLog.flush();
+    }
+
+    public long getPendingWrites() {
+        return transactionLog.getPendingWrites() + catalogLog.getPendingWrites();
+    }
+
+    public SegmentedLog getTransactionLog() {
+        return transactionLog;
+    }
+
+    public SegmentedLog getCatalogLog() {
+        return catalogLog;
+    }
+
+    /**
+     * Returns one page of a user's records, newest first. Runs are visited from the heap entries
+     * back through the indexed segments. Without a type filter the page start is found by
+     * counting entries in the time range, so only the records on the page are read; with one,
+     * types are matched from the index and only matching records are read.
+     */
+    public List<TransactionRecord> query(String username, Set<String> types, long fromMillis, long toMillis, int page, int pageSize) {
+        List<TransactionRecord> results = new ArrayList<>();
+        long through = indexedThrough;
+        List<Entries> runs = new ArrayList<>();
+        UserIndex heap = users.get(username);
+        if (heap != null) {
+            HeapEntries entries = heap.snapshot();
+            through = entries.indexedThrough;
+            runs.add(heapEntries(entries, types));
+        } else {
+            // the user's heap index is only dropped after the watermark covering it was published
+            through = indexedThrough;
+        }
+        for (Map.Entry<Long, IndexedSegment> indexed : indexes.headMap(through, true).descendingMap().entrySet()) {
+            SegmentIndex.Run run = indexed.getValue().index.find(username);
+            if (run != null) {
+                runs.add(indexedEntries(indexed.getKey(), indexed.getValue(), run, types));
+            }
+        }
+
+        int skip = page * pageSize;
+        for (Entries run : runs) {
+            int last = run.lastAtOrBefore(toMillis);
+            if (last < 0) {
+                continue;
+            }
+            int first = run.firstAtOrAfter(fromMillis);
+            if (types == null) {
+                int available = last - first + 1;
+                if (available <= skip) {
+                    skip -= Math.max(0, available);
+                } else {
+                    for (int ordinal = last - skip; ordinal >= first && results.size() < pageSize; ordinal--) {
+                        TransactionRecord record = run.record(ordinal);
+                        if (record != null) {
+                            results.add(record);
+                        }
+                    }
+                    skip = 0;
+                }
+            } else {
+                for (int ordinal = last; ordinal >= first && results.size() < pageSize; ordinal--) {
+                    if (!run.hasType(ordinal)) {
+                        continue;
+                    }
+                    if (skip > 0) {
+                        skip--;
+                        continue;
+                    }
+                    TransactionRecord record = run.record(ordinal);
+                    if (record != null) {
+                        results.add(record);
+                    }
+                }
+            }
+            if (first > 0 || results.size() >= pageSize) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private Entries heapEntries(HeapEntries heap, Set<String> types) {
+        return new Entries() {
+            @Override
+            int count() {
+                return heap.positions.length;
+            }
+
+            @Override
+            long timestamp(int ordinal) {
+                return heap.timestamps[ordinal];
+            }
+
+            @Override
+            boolean hasType(int ordinal) {
+                return types.contains(heap.types[ordinal]);
+            }
+
+            @Override
+            TransactionRecord record(int ordinal) {
+                return (heap.records[ordinal] != null) ? heap.records[ordinal] : readAt(heap.positions[ordinal]);
+            }
+        };
+    }
+
+    private Entries indexedEntries(long segment, IndexedSegment indexed, SegmentIndex.Run run, Set<String> types) {
+        SegmentIndex index = indexed.index;
+        boolean[] wanted = (types != null) ? index.typeMask(types) : null;
+        return new Entries() {
+            @Override
+            int count() {
+                return run.getCount();
+            }
+
+            @Override
+            long timestamp(int ordinal) {
+                return index.timestamp(run, ordinal);
+            }
+
+            @Override
+            boolean hasType(int ordinal) {
+                return wanted[index.typeId(run, ordinal)];
+            }
+
+            @Override
+            TransactionRecord record(int ordinal) {
+                return readAt(SegmentedLog.position(segment, indexed.generation, index.offset(run, ordinal)));
+            }
+        };
+    }
+
+    private TransactionRecord readAt(long position) {
+        try {
+            byte[] encoded = transactionLog.read(position);
+            return (encoded != null) ? TransactionRecord.decode(encoded) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        transactionLog.close();
+        catalogLog.close();
+    }
+}
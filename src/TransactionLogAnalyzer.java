@@ -0,0 +1,496 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Pattern;
+
+public class TransactionLogAnalyzer {
+    private static final long CHUNK_BYTES = 8L * 1024 * 1024;
+    private static final byte[] PURCHASE = "PURCHASE".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREMIUM_PURCHASE = "PREMIUM_PURCHASE".getBytes(StandardCharsets.UTF_8);
+    private static final Pattern SEGMENT_FILE = Pattern.compile("transactions-\\d{12}-g\\d{3}\\.seg(z)?");
+
+    public enum Dimension {
+        STORE, GAME, GENRE, ROLE, TIME
+    }
+
+    public enum Bucket {
+        HOUR, DAY, MONTH
+    }
+
+    public static class Totals {
+        private double revenue;
+        private long units;
+        private double discount;
+
+        void add(double paid, double listPrice) {
+            revenue += paid;
+            units++;
+            if (listPrice > paid) {
+                discount += listPrice - paid;
+            }
+        }
+
+        void merge(Totals other) {
+            revenue += other.revenue;
+            units += other.units;
+            discount += other.discount;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getDiscount() {
+            return discount;
+        }
+    }
+
+    public static class Report {
+        private final EnumMap<Dimension, Map<String, Totals>> totals = new EnumMap<>(Dimension.class);
+        private long recordsScanned;
+        private long purchasesCounted;
+        private long bytesScanned;
+        private long elapsedNanos;
+
+        Report() {
+            for (Dimension dimension : Dimension.values()) {
+                totals.put(dimension, new HashMap<>());
+            }
+        }
+
+        void add(Dimension dimension, String key, double paid, double listPrice) {
+            totals.get(dimension).computeIfAbsent(key, k -> new Totals()).add(paid, listPrice);
+        }
+
+        Report merge(Report other) {
+            for (Dimension dimension : Dimension.values()) {
+                Map<String, Totals> target = totals.get(dimension);
+                other.totals.get(dimension).forEach((key, value) -> target.computeIfAbsent(key, k -> new Totals()).merge(value));
+            }
+            recordsScanned += other.recordsScanned;
+            purchasesCounted += other.purchasesCounted;
+            bytesScanned += other.bytesScanned;
+            return this;
+        }
+
+        public Map<String, Totals> get(Dimension dimension) {
+            return new TreeMap<>(totals.get(dimension));
+        }
+
+        public long getRecordsScanned() {
+            return recordsScanned;
+        }
+
+        public long getBytesScanned() {
+            return bytesScanned;
+        }
+
+        public double getGigabytesPerSecond() {
+            return (elapsedNanos == 0) ? 0 : bytesScanned / (double) elapsedNanos;
+        }
+
+        public void writeCsv(PrintStream out) {
+            out.println("dimension,key,revenue,units,discount");
+            for (Dimension dimension : Dimension.values()) {
+                for (Map.Entry<String, Totals> entry : get(dimension).entrySet()) {
+                    Totals t = entry.getValue();
+                    out.printf("%s,%s,%.2f,%d,%.2f%n", dimension.name().toLowerCase(Locale.ROOT), csv(entry.getKey()), t.revenue, t.units, t.discount);
+                }
+            }
+        }
+
+        public void writeJson(PrintStream out) {
+            out.println("{");
+            Dimension[] dimensions = Dimension.values();
+            for (int d = 0; d < dimensions.length; d++) {
+                out.println("  \"" + dimensions[d].name().toLowerCase(Locale.ROOT) + "\": {");
+                List<Map.Entry<String, Totals>> entries = new ArrayList<>(get(dimensions[d]).entrySet());
+                for (int i = 0; i < entries.size(); i++) {
+                    Totals t = entries.get(i).getValue();
+                    out.printf("    %s: {\"revenue\": %.2f, \"units\": %d, \"discount\": %.2f}%s%n",
+                            json(entries.get(i).getKey()), t.revenue, t.units, t.discount, (i + 1 < entries.size()) ? "," : "");
+                }
+                out.println("  }" + ((d + 1 < dimensions.length) ? "," : ""));
+            }
+            out.println("}");
+        }
+
+        private static String csv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        private static String json(String value) {
+            StringBuilder escaped = new StringBuilder("\"");
+            for (char c : value.toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    escaped.append('\\').append(c);
+                } else if (c < 0x20) {
+                    escaped.append(String.format("\\u%04x", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+            return escaped.append('"').toString();
+        }
+    }
+
+    /**
+     * A slice of one segment: a byte range of a mapped plain segment, or a range of blocks of a
+     * compressed one, which the task scanning it inflates one block at a time.
+     */
+    private static class Chunk {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final Path file;
+        private final CompressedSegment segment;
+        private final int firstBlock;
+        private final int endBlock;
+
+        Chunk(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.file = null;
+            this.segment = null;
+            this.firstBlock = 0;
+            this.endBlock = 0;
+        }
+
+        Chunk(Path file, CompressedSegment segment, int firstBlock, int endBlock) {
+            this.buffer = null;
+            this.start = 0;
+            this.end = 0;
+            this.file = file;
+            this.segment = segment;
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+        }
+    }
+
+    private final Bucket bucket;
+    private final long fromMillis;
+    private final long toMillis;
+
+    public TransactionLogAnalyzer(Bucket bucket, long fromMillis, long toMillis) {
+        this.bucket = bucket;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    public Report analyze(Path directory, int parallelism) throws IOException {
+        long start = System.nanoTime();
+        List<Chunk> chunks = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (SEGMENT_FILE.matcher(file.getFileName().toString()).matches()) {
+                    split(file, chunks);
+                }
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Report report = pool.invoke(new ScanTask(chunks, 0, chunks.size()));
+            report.elapsedNanos = System.nanoTime() - start;
+            return report;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void split(Path file, List<Chunk> chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!file.getFileName().toString().endsWith(".segz")) {
+                split(channel, chunks);
+                return;
+            }
+            CompressedSegment segment = CompressedSegment.open(channel);
+            int firstBlock = 0;
+            long chunkBytes = 0;
+            for (int block = 0; block < segment.getBlockCount(); block++) {
+                chunkBytes += segment.getBlockLength(block);
+                if (chunkBytes >= CHUNK_BYTES) {
+                    chunks.add(new Chunk(file, segment, firstBlock, block + 1));
+                    firstBlock = block + 1;
+                    chunkBytes = 0;
+                }
+            }
+            if (firstBlock < segment.getBlockCount()) {
+                chunks.add(new Chunk(file, segment, firstBlock, segment.getBlockCount()));
+            }
+        }
+    }
+
+    /**
+     * Maps a plain segment in windows of at most {@code Integer.MAX_VALUE} bytes, since one
+     * buffer cannot address more. Each window after the first starts at the first record the
+     * previous one could not hold whole.
+     */
+    private static void split(FileChannel channel, List<Chunk> chunks) throws IOException {
+        long size = channel.size();
+        long base = 0;
+        while (base < size) {
+            long length = Math.min(size - base, Integer.MAX_VALUE);
+            int consumed = split(channel.map(FileChannel.MapMode.READ_ONLY, base, length), chunks);
+            if (consumed == 0 || base + length == size) {
+                return;
+            }
+            base += consumed;
+        }
+    }
+
+    private static int split(ByteBuffer buffer, List<Chunk> chunks) {
+        int limit = buffer.limit();
+        int chunkStart = 0;
+        int position = 0;
+        while (position + 4 <= limit) {
+            int next = position + 4 + buffer.getInt(position);
+            if (next > limit || next < position) {
+                break;
+            }
+            position = next;
+            if (position - chunkStart >= CHUNK_BYTES) {
+                chunks.add(new Chunk(buffer, chunkStart, position));
+                chunkStart = position;
+            }
+        }
+        if (position > chunkStart) {
+            chunks.add(new Chunk(buffer, chunkStart, position));
+        }
+        return position;
+    }
+
+    private class ScanTask extends RecursiveTask<Report> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+        private long bucketStart = Long.MAX_VALUE;
+        private long bucketEnd = Long.MIN_VALUE;
+        private String bucketKey;
+
+        ScanTask(List<Chunk> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Report compute() {
+            if (to - from <= 1) {
+                Report report = new Report();
+                if (to > from) {
+                    scan(chunks.get(from), report);
+                }
+                return report;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(chunks, from, middle);
+            left.fork();
+            Report right = new ScanTask(chunks, middle, to).compute();
+            return left.join().merge(right);
+        }
+
+        private void scan(Chunk chunk, Report report) {
+            if (chunk.segment == null) {
+                scan(chunk.buffer.duplicate(), chunk.start, chunk.end, report);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(chunk.file, StandardOpenOption.READ)) {
+                byte[] block = null;
+                for (int i = chunk.firstBlock; i < chunk.endBlock; i++) {
+                    block = chunk.segment.inflateBlock(channel, i, block);
+                    scan(ByteBuffer.wrap(block), 0, chunk.segment.getBlockLength(i), report);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Scans whole records in {@code [start, end)}. The timestamp and type are checked on the
+         * raw bytes first; strings are only decoded for the purchases that are counted.
+         */
+        private void scan(ByteBuffer buffer, int start, int end, Report report) {
+            int position = start;
+            while (position < end) {
+                int next = position + 4 + buffer.getInt(position);
+                report.recordsScanned++;
+                long timestamp = buffer.getLong(position + 4);
+                if (timestamp < fromMillis || timestamp >= toMillis) {
+                    position = next;
+                    continue;
+                }
+                buffer.limit(next).position(position + 12);
+                TransactionRecord.skipString(buffer);
+                int typeLength = buffer.getShort() & 0xFFFF;
+                int typeStart = buffer.position();
+                if (!matches(buffer, typeStart, typeLength, PURCHASE) && !matches(buffer, typeStart, typeLength, PREMIUM_PURCHASE)) {
+                    buffer.limit(buffer.capacity());
+                    position = next;
+                    continue;
+                }
+                buffer.position(typeStart + typeLength);
+                double paid = buffer.getDouble();
+                TransactionRecord.skipString(buffer);
+                TransactionRecord.skipString(buffer);
+                String storeName = TransactionRecord.readString(buffer);
+                String gameName = TransactionRecord.readString(buffer);
+                String genre = TransactionRecord.readString(buffer);
+                String role = TransactionRecord.readString(buffer);
+                double listPrice = buffer.getDouble();
+                buffer.limit(buffer.capacity());
+                position = next;
+
+                report.purchasesCounted++;
+                report.add(Dimension.STORE, storeName, paid, listPrice);
+                report.add(Dimension.GAME, gameName, paid, listPrice);
+                report.add(Dimension.GENRE, genre, paid, listPrice);
+                report.add(Dimension.ROLE, role, paid, listPrice);
+                report.add(Dimension.TIME, timeBucket(timestamp), paid, listPrice);
+            }
+            report.bytesScanned += end - start;
+        }
+
+        private boolean matches(ByteBuffer buffer, int start, int length, byte[] expected) {
+            if (length != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(start + i) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String timeBucket(long timestamp) {
+            if (timestamp >= bucketStart && timestamp < bucketEnd) {
+                return bucketKey;
+            }
+            ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC);
+            ZonedDateTime start;
+            ZonedDateTime end;
+            switch (bucket) {
+                case HOUR:
+                    start = time.truncatedTo(ChronoUnit.HOURS);
+                    end = start.plusHours(1);
+                    bucketKey = start.format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:00"));
+                    break;
+                case MONTH:
+                    start = time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+                    end = start.plusMonths(1);
+                    bucketKey = start.format(DateTimeFormatter.ofPattern("yyyy-MM"));
+                    break;
+                default:
+                    start = time.truncatedTo(ChronoUnit.DAYS);
+                    end = start.plusDays(1);
+                    bucketKey = start.format(DateTimeFormatter.ISO_LOCAL_DATE);
+                    break;
+            }
+            bucketStart = start.toInstant().toEpochMilli();
+            bucketEnd = end.toInstant().toEpochMilli();
+            return bucketKey;
+        }
+    }
+
+    private static long parseDate(String date) {
+        return LocalDate.parse(date).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: TransactionLogAnalyzer <history-dir> [--bucket hour|day|month] [--from yyyy-MM-dd] "
+                    + "[--to yyyy-MM-dd] [--format csv|json] [--out file] [--threads n]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        Bucket bucket = Bucket.DAY;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        String format = "csv";
+        String outFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 1; i < args.length - 1; i += 2) {
+                switch (args[i]) {
+                    case "--bucket":
+                        bucket = Bucket.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                        break;
+                    case "--from":
+                        from = parseDate(args[i + 1]);
+                        break;
+                    case "--to":
+                        to = parseDate(args[i + 1]);
+                        break;
+                    case "--format":
+                        format = args[i + 1].toLowerCase(Locale.ROOT);
+                        break;
+                    case "--out":
+                        outFile = args[i + 1];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[i + 1]);
+                        break;
+                    default:
+                        System.out.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Invalid option value: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Report report = new TransactionLogAnalyzer(bucket, from, to).analyze(directory, threads);
+            PrintStream out = (outFile != null) ? new PrintStream(Files.newOutputStream(Paths.get(outFile)), false, "UTF-8") : System.out;
+            if (format.equals("json")) {
+                report.writeJson(out);
+            } else {
+                report.writeCsv(out);
+            }
+            out.flush();
+            if (out != System.out) {
+                out.close();
+            }
+            System.err.printf("Scanned %d records (%d purchases, %.1f MB) in %.3f s (%.2f GB/s)%n", report.recordsScanned,
+                    report.purchasesCounted, report.bytesScanned / 1_000_000.0, report.elapsedNanos / 1e9, report.getGigabytesPerSecond());
+        } catch (IOException e) {
+            System.out.println("Could not analyze " + directory + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,49 @@
+import java.io.UncheckedIOException;
 
 public class TransactionLogger {
+    private static volatile TransactionHistory history;
+
+    public static void setHistory(TransactionHistory transactionHistory) {
+        history = transactionHistory;
+    }
+
+    public static TransactionHistory getHistory() {
+        return history;
+    }
 
     public static void logTransaction(String username, String type, double amount, String details) {
+        logTransaction(username, type, amount, details, null);
+    }
+
+    public static void logCatalogChange(String username, String type, double amount, String details, String storeName, String gameName) {
+        logTransaction(username, type, amount, details, storeName + "\u0000" + gameName);
+    }
+
+    public static void logPurchase(String username, UserRole role, String type, double amount, String storeName, Game game) {
+        String details = game.getName() + " from " + storeName;
+        print(username, type, amount, details);
+        record(new TransactionRecord(System.currentTimeMillis(), username, type, amount, details, null,
+                storeName, game.getName(), game.getGenre(), role.getRoleName(), game.getPrice()));
+    }
+
+    private static void logTransaction(String username, String type, double amount, String details, String compactionKey) {
+        print(username, type, amount, details);
+        record(new TransactionRecord(System.currentTimeMillis(), username, type, amount, details, compactionKey));
+    }
+
+    private static void record(TransactionRecord record) {
+        TransactionHistory transactionHistory = history;
+        if (transactionHistory == null) {
+            return;
+        }
+        try {
+            transactionHistory.record(record);
+        } catch (UncheckedIOException e) {
+            System.out.println("Error: transaction history is unavailable: " + e.getMessage());
+        }
+    }
+
+    private static void print(String username, String type, double amount, String details) {
         System.out.printf("[TRANSACTION LOG] User: %s, Type: %s, Amount/Value: %.2f, Details: %s%n",
                 username, type, amount, details);
     }
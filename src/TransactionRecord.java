@@ -0,0 +1,178 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+public class TransactionRecord {
+    private final long timestampMillis;
+    private final String username;
+    private final String type;
+    private final double amount;
+    private final String details;
+    private final String compactionKey;
+    private final String storeName;
+    private final String gameName;
+    private final String genre;
+    private final String role;
+    private final double listPrice;
+
+    public TransactionRecord(long timestampMillis, String username, String type, double amount, String details) {
+        this(timestampMillis, username, type, amount, details, null);
+    }
+
+    public TransactionRecord(long timestampMillis, String username, String type, double amount, String details, String compactionKey) {
+        this(timestampMillis, username, type, amount, details, compactionKey, null, null, null, null, 0);
+    }
+
+    public TransactionRecord(long timestampMillis, String username, String type, double amount, String details, String compactionKey,
+                             String storeName, String gameName, String genre, String role, double listPrice) {
+        this.timestampMillis = timestampMillis;
+        this.username = orEmpty(username);
+        this.type = type;
+        this.amount = amount;
+        this.details = orEmpty(details);
+        this.compactionKey = orEmpty(compactionKey);
+        this.storeName = orEmpty(storeName);
+        this.gameName = orEmpty(gameName);
+        this.genre = orEmpty(genre);
+        this.role = orEmpty(role);
+        this.listPrice = listPrice;
+    }
+
+    private static String orEmpty(String value) {
+        return (value != null) ? value : "";
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public String getCompactionKey() {
+        return compactionKey;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getGameName() {
+        return gameName;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public double getListPrice() {
+        return listPrice;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(timestampMillis);
+            out.writeUTF(username);
+            out.writeUTF(type);
+            out.writeDouble(amount);
+            out.writeUTF(details);
+            out.writeUTF(compactionKey);
+            out.writeUTF(storeName);
+            out.writeUTF(gameName);
+            out.writeUTF(genre);
+            out.writeUTF(role);
+            out.writeDouble(listPrice);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static TransactionRecord decode(byte[] encoded) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            return new TransactionRecord(in.readLong(), in.readUTF(), in.readUTF(), in.readDouble(), in.readUTF(), in.readUTF(),
+                    in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readDouble());
+        }
+    }
+
+    public static TransactionRecord decode(ByteBuffer buffer) {
+        return new TransactionRecord(buffer.getLong(), readString(buffer), readString(buffer), buffer.getDouble(), readString(buffer),
+                readString(buffer), readString(buffer), readString(buffer), readString(buffer), readString(buffer), buffer.getDouble());
+    }
+
+    /**
+     * Reads a string written by {@link DataOutputStream#writeUTF}. That encoding is modified
+     * UTF-8: NUL is written as C0 80 and a supplementary character as its two surrogates, each
+     * a 3-byte sequence, so it cannot be decoded as standard UTF-8.
+     */
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        int start = buffer.position();
+        int end = start + length;
+        boolean ascii = true;
+        for (int i = start; i < end && ascii; i++) {
+            ascii = buffer.get(i) >= 0;
+        }
+        if (ascii) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = new char[length];
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            int b = buffer.get(i) & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end && (buffer.get(i + 1) & 0xC0) == 0x80) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get(i + 1) & 0x3F));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end && (buffer.get(i + 1) & 0xC0) == 0x80 && (buffer.get(i + 2) & 0xC0) == 0x80) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((buffer.get(i + 1) & 0x3F) << 6) | (buffer.get(i + 2) & 0x3F));
+                i += 3;
+            } else {
+                throw new IllegalArgumentException("Malformed modified UTF-8 at byte " + (i - start) + " of a " + length + "-byte string");
+            }
+        }
+        buffer.position(end);
+        return new String(chars, 0, count);
+    }
+
+    static void skipString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + length);
+    }
+
+    @Override
+    public String toString() {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(timestampMillis)) + "  "
+                + String.format("%-16s $%9.2f  %s", type, amount, details);
+    }
+}
@@ -1,11 +1,86 @@
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class UserManager {
-    private Map<String, User> users;
+    private static final int MAX_MATERIALIZED_USERS = 10_000;
+
+    private UserRegistry registry;
+    private Map<Integer, User> materializedUsers;
+    private ChangeEventBus eventBus;
+    private AdmissionController admissionController;
+    private IdempotencyCache idempotencyCache;
+    private CoPurchaseRecommender recommender;
+    private CatalogExporter catalogExporter;
 
     public UserManager() {
-        this.users = new HashMap<>();
+        this.registry = new UserRegistry();
+        this.materializedUsers = new LinkedHashMap<Integer, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, User> eldest) {
+                if (size() <= MAX_MATERIALIZED_USERS) {
+                    return false;
+                }
+                if (eldest.getValue() instanceof Admin) {
+                    ((Admin) eldest.getValue()).stopStats();
+                }
+                return true;
+            }
+        };
+    }
+
+    public void setEventBus(ChangeEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public ChangeEventBus getEventBus() {
+        return this.eventBus;
+    }
+
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return this.admissionController;
+    }
+
+    public void setIdempotencyCache(IdempotencyCache idempotencyCache) {
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    public IdempotencyCache getIdempotencyCache() {
+        return this.idempotencyCache;
+    }
+
+    public void setRecommender(CoPurchaseRecommender recommender) {
+        this.recommender = recommender;
+    }
+
+    public CoPurchaseRecommender getRecommender() {
+        return this.recommender;
+    }
+
+    public void setCatalogExporter(CatalogExporter catalogExporter) {
+        this.catalogExporter = catalogExporter;
+    }
+
+    public CatalogExporter getCatalogExporter() {
+        return this.catalogExporter;
+    }
+
+    public int getUserCount() {
+        return this.registry.size();
+    }
+
+    public UserRegistry getRegistry() {
+        return this.registry;
+    }
+
+    void recordBalanceChange(Customer customer, double amount) {
+        if (this.eventBus != null) {
+            this.eventBus.publish(ChangeEvent.Type.BALANCE_CHANGE, customer.getUsername(), null, null, amount, null);
+        }
     }
 
     public boolean registerUser(String username, String password, String roleString) {
@@ -26,39 +101,75 @@ public class UserManager {
     }
 
     public boolean registerUser(String username, String password, UserRole role, double discountRate) {
-        if (this.users.containsKey(username)) {
+        if (this.admissionController != null && !this.admissionController.admitRegistration()) {
+            return false;
+        }
+        if (this.registry.find(username) >= 0) {
             System.out.println("Username already exists!");
             return false;
         }
 
-        User newUser;
         switch (role) {
             case CUSTOMER:
-                newUser = new Customer(username, password);
+            case STORE_OWNER:
+                discountRate = 0.0;
                 break;
             case PREMIUM_CUSTOMER:
-                newUser = new PremiumCustomer(username, password, discountRate);
-                break;
-            case STORE_OWNER:
-                newUser = new StoreOwner(username, password);
+                discountRate = PremiumCustomer.normalizeDiscountRate(discountRate);
                 break;
-            case ADMIN: 
-                System.out.println("Admin role not yet fully implemented for registration.");
+            case ADMIN:
+                System.out.println("Admin accounts cannot be self-registered. They are created with --admin or --provision at startup.");
                 return false;
             default:
                 System.out.println("Invalid role for registration!");
                 return false;
         }
 
-        this.users.put(username, newUser);
+        if (this.registry.add(username, password, role, discountRate) < 0) {
+            System.out.println("Username already exists!");
+            return false;
+        }
+        if (this.eventBus != null) {
+            this.eventBus.publish(ChangeEvent.Type.REGISTER_USER, username, null, null, 0, role.getRoleName());
+        }
         System.out.println(role.getRoleName().substring(0, 1).toUpperCase() + role.getRoleName().substring(1).toLowerCase().replace("_", " ") + " registration successful!");
         return true;
     }
 
+    /**
+     * Creates an admin account on behalf of the operator starting the server. Unlike
+     * self-registration this is not reachable from the menus.
+     */
+    public boolean bootstrapAdmin(String username, String password) {
+        if (this.registry.add(username, password, UserRole.ADMIN, 0.0) < 0) {
+            System.out.println("Could not create admin '" + username + "': username already exists.");
+            return false;
+        }
+        if (this.eventBus != null) {
+            this.eventBus.publish(ChangeEvent.Type.REGISTER_USER, username, null, null, 0, UserRole.ADMIN.getRoleName());
+        }
+        System.out.println("Admin account '" + username + "' created.");
+        return true;
+    }
+
+    public int[] provisionAccounts(List<EncodedAccount> accounts) {
+        int[] ids = this.registry.addAll(accounts);
+        if (this.eventBus != null) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] >= 0) {
+                    this.eventBus.publish(ChangeEvent.Type.REGISTER_USER, accounts.get(i).getUsername(), null, null, 0,
+                            accounts.get(i).getRole().getRoleName());
+                }
+            }
+        }
+        return ids;
+    }
+
     public User loginUser(String username, String password) {
-        User user = this.users.get(username);
+        int id = this.registry.find(username);
 
-        if (user != null && user.checkPassword(password)) {
+        if (id >= 0 && this.registry.checkPassword(id, password)) {
+            User user = materialize(id);
             System.out.println("Login successful! Welcome " + user.getUsername() + " (" + user.getRole().getRoleName() + ")");
             return user;
         } else {
@@ -68,6 +179,35 @@ public class UserManager {
     }
 
     public User getUserByUsername(String username) {
-        return this.users.get(username);
+        int id = this.registry.find(username);
+        return (id >= 0) ? materialize(id) : null;
+    }
+
+    private synchronized User materialize(int id) {
+        User user = this.materializedUsers.get(id);
+        if (user != null) {
+            return user;
+        }
+        String username = this.registry.getUsername(id);
+        String password = this.registry.getPassword(id);
+        switch (this.registry.getRole(id)) {
+            case PREMIUM_CUSTOMER:
+                user = new PremiumCustomer(username, password, this.registry.getDiscountRate(id));
+                break;
+            case STORE_OWNER:
+                user = new StoreOwner(username, password);
+                break;
+            case ADMIN:
+                user = new Admin(username, password);
+                break;
+            default:
+                user = new Customer(username, password);
+                break;
+        }
+        if (user instanceof Customer) {
+            ((Customer) user).bind(this, id);
+        }
+        this.materializedUsers.put(id, user);
+        return user;
     }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class UserRegistry {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final UserRole[] ROLES = UserRole.values();
+
+    private byte[] pool;
+    private int poolSize;
+    private int[] nameOffsets;
+    private int[] passwordOffsets;
+    private int[] hashes;
+    private byte[] roles;
+    private double[] balances;
+    private double[] discountRates;
+    private int[][] ownedGameIds;
+    private int[] ownedGameCounts;
+    private final HashMap<String, Integer> gameIds = new HashMap<>();
+    private final List<String> gameNames = new ArrayList<>();
+    private long ownedGameSlots;
+    private int[] table;
+    private int size;
+    private final int[] roleCounts = new int[ROLES.length];
+
+    public UserRegistry() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public UserRegistry(int expectedUsers) {
+        int capacity = Math.max(16, expectedUsers);
+        this.pool = new byte[capacity * 16];
+        this.nameOffsets = new int[capacity];
+        this.passwordOffsets = new int[capacity];
+        this.hashes = new int[capacity];
+        this.roles = new byte[capacity];
+        this.balances = new double[capacity];
+        this.discountRates = new double[capacity];
+        this.ownedGameIds = new int[capacity][];
+        this.ownedGameCounts = new int[capacity];
+        this.table = new int[tableSizeFor(capacity)];
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+    }
+
+    static int hash(byte[] key) {
+        int h = 0x811c9dc5;
+        for (byte b : key) {
+            h ^= (b & 0xff);
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private int nameLength(int id) {
+        return passwordOffsets[id] - nameOffsets[id];
+    }
+
+    private int passwordEnd(int id) {
+        return (id + 1 < size) ? nameOffsets[id + 1] : poolSize;
+    }
+
+    private boolean regionEquals(int offset, int length, byte[] key) {
+        return length == key.length && Arrays.equals(pool, offset, offset + length, key, 0, key.length);
+    }
+
+    private int findSlot(byte[] key, int h) {
+        int mask = table.length - 1;
+        int slot = h & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return slot;
+            }
+            int id = entry - 1;
+            if (hashes[id] == h && regionEquals(nameOffsets[id], nameLength(id), key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public synchronized int find(String username) {
+        if (username == null) {
+            return -1;
+        }
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        int entry = table[findSlot(key, hash(key))];
+        return entry - 1;
+    }
+
+    public synchronized int add(String username, String password, UserRole role, double discountRate) {
+        EncodedAccount account = new EncodedAccount(username, password, role, discountRate);
+        ensureCapacity(size + 1, account.name.length + account.secret.length);
+        return insert(account);
+    }
+
+    public synchronized int[] addAll(List<EncodedAccount> accounts) {
+        int totalBytes = 0;
+        for (EncodedAccount account : accounts) {
+            totalBytes += account.name.length + account.secret.length;
+        }
+        ensureCapacity(size + accounts.size(), totalBytes);
+        int[] ids = new int[accounts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = insert(accounts.get(i));
+        }
+        return ids;
+    }
+
+    private int insert(EncodedAccount account) {
+        int slot = findSlot(account.name, account.hash);
+        if (table[slot] != 0) {
+            return -1;
+        }
+        if ((size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+            slot = findSlot(account.name, account.hash);
+        }
+
+        int id = size++;
+        nameOffsets[id] = poolSize;
+        System.arraycopy(account.name, 0, pool, poolSize, account.name.length);
+        poolSize += account.name.length;
+        passwordOffsets[id] = poolSize;
+        System.arraycopy(account.secret, 0, pool, poolSize, account.secret.length);
+        poolSize += account.secret.length;
+        hashes[id] = account.hash;
+        roles[id] = (byte) account.role.ordinal();
+        roleCounts[account.role.ordinal()]++;
+        discountRates[id] = account.discountRate;
+        table[slot] = id + 1;
+        return id;
+    }
+
+    private void ensureCapacity(int users, int extraBytes) {
+        if (users > nameOffsets.length) {
+            int capacity = Math.max(users, nameOffsets.length * 2);
+            if ((long) users * 2 > table.length) {
+                rehash(tableSizeFor(capacity));
+            }
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+            passwordOffsets = Arrays.copyOf(passwordOffsets, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            roles = Arrays.copyOf(roles, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            discountRates = Arrays.copyOf(discountRates, capacity);
+            ownedGameIds = Arrays.copyOf(ownedGameIds, capacity);
+            ownedGameCounts = Arrays.copyOf(ownedGameCounts, capacity);
+        }
+        if ((long) poolSize + extraBytes > pool.length) {
+            pool = Arrays.copyOf(pool, (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) poolSize + extraBytes, pool.length * 2L)));
+        }
+    }
+
+    private void rehash(int newTableSize) {
+        table = new int[newTableSize];
+        int mask = newTableSize - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    public synchronized boolean checkPassword(int id, String passwordAttempt) {
+        if (passwordAttempt == null) {
+            return false;
+        }
+        byte[] attempt = passwordAttempt.getBytes(StandardCharsets.UTF_8);
+        return regionEquals(passwordOffsets[id], passwordEnd(id) - passwordOffsets[id], attempt);
+    }
+
+    public synchronized String getUsername(int id) {
+        return new String(pool, nameOffsets[id], nameLength(id), StandardCharsets.UTF_8);
+    }
+
+    public synchronized String getPassword(int id) {
+        return new String(pool, passwordOffsets[id], passwordEnd(id) - passwordOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    public synchronized UserRole getRole(int id) {
+        return ROLES[roles[id]];
+    }
+
+    public synchronized double getBalance(int id) {
+        return balances[id];
+    }
+
+    public synchronized void setBalance(int id, double balance) {
+        balances[id] = balance;
+    }
+
+    /**
+     * Adds {@code amount} to the balance unless that would take it below zero.
+     */
+    public synchronized boolean adjustBalance(int id, double amount) {
+        if (balances[id] + amount < 0) {
+            return false;
+        }
+        balances[id] += amount;
+        return true;
+    }
+
+    public synchronized void addOwnedGame(int id, String gameName) {
+        Integer gameId = gameIds.get(gameName);
+        if (gameId == null) {
+            gameId = gameNames.size();
+            gameNames.add(gameName);
+            gameIds.put(gameName, gameId);
+        }
+        int[] owned = ownedGameIds[id];
+        int count = ownedGameCounts[id];
+        if (owned == null || count == owned.length) {
+            int capacity = (owned == null) ? 4 : owned.length * 2;
+            ownedGameSlots += capacity - ((owned == null) ? 0 : owned.length);
+            owned = (owned == null) ? new int[capacity] : Arrays.copyOf(owned, capacity);
+            ownedGameIds[id] = owned;
+        }
+        owned[count] = gameId;
+        ownedGameCounts[id] = count + 1;
+    }
+
+    public synchronized List<String> getOwnedGames(int id) {
+        int count = ownedGameCounts[id];
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(gameNames.get(ownedGameIds[id][i]));
+        }
+        return names;
+    }
+
+    public synchronized int getOwnedGameCount(int id) {
+        return ownedGameCounts[id];
+    }
+
+    public synchronized double getDiscountRate(int id) {
+        return discountRates[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int countByRole(UserRole role) {
+        return roleCounts[role.ordinal()];
+    }
+
+    public synchronized long estimatedBytes() {
+        long perUserArrays = (long) nameOffsets.length * (4 + 4 + 4 + 1 + 8 + 8 + 8 + 4);
+        return pool.length + perUserArrays + (long) table.length * 4 + ownedGameSlots * 4;
+    }
+}
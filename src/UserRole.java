@@ -1,9 +1,20 @@
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum UserRole {
     CUSTOMER("customer"),
     PREMIUM_CUSTOMER("premium_customer"),
     STORE_OWNER("store_owner"),
     ADMIN("admin");
 
+    private static final Map<String, UserRole> BY_NAME = new HashMap<>();
+    static {
+        for (UserRole r : UserRole.values()) {
+            BY_NAME.put(r.roleName, r);
+        }
+    }
+
     private final String roleName;
 
     UserRole(String roleName) {
@@ -15,10 +26,9 @@ public enum UserRole {
     }
 
     public static UserRole fromString(String text) {
-        for (UserRole r : UserRole.values()) {
-            if (r.roleName.equalsIgnoreCase(text)) {
-                return r;
-            }
+        UserRole role = (text != null) ? BY_NAME.get(text.toLowerCase(Locale.ROOT)) : null;
+        if (role != null) {
+            return role;
         }
         throw new IllegalArgumentException("No role with text " + text + " found");
     }
@@ -0,0 +1,231 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WishlistService {
+    private static final double NO_TARGET = Double.NaN;
+
+    private final int batchSize;
+    private final int maxPendingPerUser;
+    private final ExecutorService notifier;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, GameWatchers>> watchersByStore = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<GameWatchers, Double>> wishlistsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ArrayDeque<String>> inboxes = new ConcurrentHashMap<>();
+    private final AtomicLong notificationsDelivered = new AtomicLong();
+
+    public WishlistService(int notifierThreads, int batchSize, int maxPendingPerUser) {
+        if (notifierThreads <= 0 || batchSize <= 0 || maxPendingPerUser <= 0) {
+            throw new IllegalArgumentException("Notifier threads, batch size and inbox size must be positive.");
+        }
+        this.batchSize = batchSize;
+        this.maxPendingPerUser = maxPendingPerUser;
+        this.notifier = Executors.newFixedThreadPool(notifierThreads, task -> {
+            Thread thread = new Thread(task, "wishlist-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static class WishlistEntry {
+        private final String storeName;
+        private final String gameName;
+        private final double targetPrice;
+
+        WishlistEntry(String storeName, String gameName, double targetPrice) {
+            this.storeName = storeName;
+            this.gameName = gameName;
+            this.targetPrice = targetPrice;
+        }
+
+        public String getStoreName() {
+            return storeName;
+        }
+
+        public String getGameName() {
+            return gameName;
+        }
+
+        public boolean hasTargetPrice() {
+            return !Double.isNaN(targetPrice);
+        }
+
+        public double getTargetPrice() {
+            return targetPrice;
+        }
+    }
+
+    /**
+     * Watchers of one game, sorted by target price so a cut from old to new price only visits
+     * the watchers whose target lies in [new, old). Watchers without a target hear about every cut.
+     */
+    private static class GameWatchers {
+        private volatile String storeName;
+        private final String gameName;
+        private final ConcurrentSkipListMap<Double, Set<String>> byTarget = new ConcurrentSkipListMap<>();
+        private final Set<String> anyDrop = ConcurrentHashMap.newKeySet();
+
+        GameWatchers(String storeName, String gameName) {
+            this.storeName = storeName;
+            this.gameName = gameName;
+        }
+
+        synchronized void add(String username, double targetPrice) {
+            if (Double.isNaN(targetPrice)) {
+                anyDrop.add(username);
+            } else {
+                byTarget.computeIfAbsent(targetPrice, target -> ConcurrentHashMap.newKeySet()).add(username);
+            }
+        }
+
+        synchronized void remove(String username, double targetPrice) {
+            if (Double.isNaN(targetPrice)) {
+                anyDrop.remove(username);
+                return;
+            }
+            Set<String> watchers = byTarget.get(targetPrice);
+            if (watchers != null) {
+                watchers.remove(username);
+                if (watchers.isEmpty()) {
+                    byTarget.remove(targetPrice);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the game and then checks the catalog still lists it. The catalog changes before a
+     * store rename or game removal reaches this service, so an entry added after that change sees
+     * the miss here and is taken back out rather than left dangling under the old name.
+     */
+    public boolean addToWishlist(String username, String storeName, String gameName, Double targetPrice, StoreService catalog) {
+        GameWatchers watchers = watchersByStore.computeIfAbsent(storeName, store -> new ConcurrentHashMap<>())
+                .computeIfAbsent(gameName, game -> new GameWatchers(storeName, gameName));
+        double target = (targetPrice != null) ? targetPrice : NO_TARGET;
+        Map<GameWatchers, Double> wishlist = wishlistsByUser.computeIfAbsent(username, user -> new ConcurrentHashMap<>());
+        Double previous = wishlist.put(watchers, target);
+        if (previous != null) {
+            watchers.remove(username, previous);
+        }
+        watchers.add(username, target);
+        if (catalog.getGameFromStore(storeName, gameName) != null) {
+            return true;
+        }
+        if (wishlist.remove(watchers, target)) {
+            watchers.remove(username, target);
+        }
+        return false;
+    }
+
+    public boolean removeFromWishlist(String username, String storeName, String gameName) {
+        GameWatchers watchers = lookup(storeName, gameName);
+        Map<GameWatchers, Double> wishlist = wishlistsByUser.get(username);
+        Double target = (watchers != null && wishlist != null) ? wishlist.remove(watchers) : null;
+        if (target == null) {
+            return false;
+        }
+        watchers.remove(username, target);
+        return true;
+    }
+
+    public List<WishlistEntry> getWishlist(String username) {
+        Map<GameWatchers, Double> wishlist = wishlistsByUser.get(username);
+        if (wishlist == null) {
+            return Collections.emptyList();
+        }
+        List<WishlistEntry> entries = new ArrayList<>();
+        wishlist.forEach((watchers, target) -> entries.add(new WishlistEntry(watchers.storeName, watchers.gameName, target)));
+        return entries;
+    }
+
+    public List<String> drainNotifications(String username) {
+        ArrayDeque<String> inbox = inboxes.get(username);
+        if (inbox == null) {
+            return Collections.emptyList();
+        }
+        synchronized (inbox) {
+            List<String> pending = new ArrayList<>(inbox);
+            inbox.clear();
+            return pending;
+        }
+    }
+
+    public void onPriceChanged(String storeName, String gameName, double oldPrice, double newPrice) {
+        if (newPrice >= oldPrice) {
+            return;
+        }
+        GameWatchers watchers = lookup(storeName, gameName);
+        if (watchers != null) {
+            notifier.execute(() -> fanOut(watchers, oldPrice, newPrice));
+        }
+    }
+
+    public void renameStore(String oldName, String newName) {
+        ConcurrentHashMap<String, GameWatchers> games = watchersByStore.remove(oldName);
+        if (games != null) {
+            for (GameWatchers watchers : games.values()) {
+                watchers.storeName = newName;
+            }
+            watchersByStore.put(newName, games);
+        }
+    }
+
+    public long getNotificationsDelivered() {
+        return notificationsDelivered.get();
+    }
+
+    public int getWatchingUserCount() {
+        return wishlistsByUser.size();
+    }
+
+    private GameWatchers lookup(String storeName, String gameName) {
+        Map<String, GameWatchers> games = watchersByStore.get(storeName);
+        return (games != null) ? games.get(gameName) : null;
+    }
+
+    private void fanOut(GameWatchers watchers, double oldPrice, double newPrice) {
+        String message = "Price drop: '" + watchers.gameName + "' in '" + watchers.storeName + "' is now $"
+                + String.format("%.2f", newPrice) + " (was $" + String.format("%.2f", oldPrice) + ")";
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String username : watchers.anyDrop) {
+            batch = addToBatch(batch, username, message);
+        }
+        for (Set<String> usernames : watchers.byTarget.subMap(newPrice, true, oldPrice, false).values()) {
+            for (String username : usernames) {
+                batch = addToBatch(batch, username, message);
+            }
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch, message);
+        }
+    }
+
+    private List<String> addToBatch(List<String> batch, String username, String message) {
+        batch.add(username);
+        if (batch.size() < batchSize) {
+            return batch;
+        }
+        notifier.execute(() -> deliver(batch, message));
+        return new ArrayList<>(batchSize);
+    }
+
+    private void deliver(List<String> usernames, String message) {
+        for (String username : usernames) {
+            ArrayDeque<String> inbox = inboxes.computeIfAbsent(username, user -> new ArrayDeque<>());
+            synchronized (inbox) {
+                if (inbox.size() == maxPendingPerUser) {
+                    inbox.pollFirst();
+                }
+                inbox.addLast(message);
+            }
+        }
+        notificationsDelivered.addAndGet(usernames.size());
+    }
+}